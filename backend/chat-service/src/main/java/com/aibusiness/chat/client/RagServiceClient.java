@@ -12,5 +12,9 @@ public interface RagServiceClient {
 
     @PostMapping("/api/v1/rag/query")
     RagQueryResponse queryRag(@RequestBody RagQueryRequest request);
+
+    // Context and sources only, no generated answer; what a chat turn needs from the RAG service
+    @PostMapping("/api/v1/rag/retrieve")
+    RagQueryResponse retrieveContext(@RequestBody RagQueryRequest request);
 }
 
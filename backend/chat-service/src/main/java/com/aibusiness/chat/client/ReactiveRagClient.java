@@ -0,0 +1,37 @@
+package com.aibusiness.chat.client;
+
+import com.aibusiness.chat.dto.RagQueryRequest;
+import com.aibusiness.chat.dto.RagQueryResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking counterpart of {@link RagServiceClient} for the reactive streaming endpoint.
+ * The request holds no thread while the RAG service retrieves the context.
+ */
+@Component
+public class ReactiveRagClient {
+
+    private final WebClient webClient;
+    private final Duration timeout;
+
+    public ReactiveRagClient(WebClient.Builder loadBalancedWebClientBuilder,
+                             @Value("${chat.rag.timeout-ms:15000}") long timeoutMs) {
+        // The name "rag-service" must match the spring.application.name in the RAG service's config
+        this.webClient = loadBalancedWebClientBuilder.clone().baseUrl("http://rag-service").build();
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    public Mono<RagQueryResponse> retrieveContext(RagQueryRequest request) {
+        return webClient.post()
+                .uri("/api/v1/rag/retrieve")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(RagQueryResponse.class)
+                .timeout(timeout);
+    }
+}
@@ -0,0 +1,22 @@
+package com.aibusiness.chat.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class HistoryConfig {
+
+    /**
+     * Refreshes conversation summaries off the request threads. Summaries are not urgent,
+     * so a small pool is enough.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService summaryExecutor(@Value("${chat.history.summary-workers:2}") int workers) {
+        return Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("chat-summary-"));
+    }
+}
@@ -0,0 +1,32 @@
+package com.aibusiness.chat.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class RagConfig {
+
+    /**
+     * Runs the blocking RAG lookups of a request while its thread loads the session and
+     * history. A lookup that outlives the latency budget keeps its thread until the retrieval
+     * returns or Feign's read timeout, so the pool is bounded; a full queue makes the request
+     * go without context.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ragExecutor(@Value("${chat.rag.workers:32}") int workers,
+                                       @Value("${chat.rag.queue-capacity:128}") int queueCapacity) {
+        return new ThreadPoolExecutor(
+                workers, workers,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("chat-rag-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,31 @@
+package com.aibusiness.chat.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class StreamingConfig {
+
+    /**
+     * Runs the blocking setup of streaming responses (session, RAG context, history) before
+     * the model's token stream takes over. Bounded in threads and queue; a full queue
+     * rejects the request rather than letting it wait indefinitely.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService streamExecutor(@Value("${chat.streaming.setup-workers:16}") int workers,
+                                          @Value("${chat.streaming.setup-queue-capacity:64}") int queueCapacity) {
+        return new ThreadPoolExecutor(
+                workers, workers,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("chat-stream-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
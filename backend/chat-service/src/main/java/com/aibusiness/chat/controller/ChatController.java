@@ -4,9 +4,12 @@ import com.aibusiness.chat.dto.*;
 import com.aibusiness.chat.service.ChatService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +36,14 @@ public class ChatController {
         return ResponseEntity.ok(chatService.getSessionWithMessages(sessionId, userId));
     }
 
+    @GetMapping("/sessions/{sessionId}/messages/page")
+    public ResponseEntity<MessagePageResponse> getMessagePage(@PathVariable Long sessionId, @RequestParam Long userId,
+                                                              @RequestParam(required = false) Long before,
+                                                              @RequestParam(required = false) Long after,
+                                                              @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(chatService.getMessagePage(sessionId, userId, before, after, limit));
+    }
+
     @PutMapping("/sessions/{sessionId}/title")
     public ResponseEntity<SessionResponse> updateSessionTitle(@PathVariable Long sessionId, @RequestParam Long userId, @RequestParam String title) {
         return ResponseEntity.ok(chatService.updateSessionTitle(sessionId, userId, title));
@@ -55,6 +66,11 @@ public class ChatController {
         return chatService.sendMessageStream(request);
     }
 
+    @PostMapping(value = "/message/stream/reactive", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<StreamEvent>> streamMessage(@Valid @RequestBody SendMessageRequest request) {
+        return chatService.streamMessage(request);
+    }
+
     // --- Health ---
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
@@ -42,6 +42,8 @@ public class SessionResponse {
 }
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class MessageResponse {
     private Long id;
     @JsonProperty("session_id") private Long sessionId;
@@ -63,6 +65,13 @@ public class SessionWithMessagesResponse {
     private List<MessageResponse> messages;
 }
 
+@Data
+@AllArgsConstructor
+public class MessagePageResponse {
+    private List<MessageResponse> messages; // Oldest first
+    @JsonProperty("has_more") private boolean hasMore; // More messages exist beyond this page in the direction paged
+}
+
 @Data
 public class SendMessageRequest {
     @NotNull @JsonProperty("user_id") private Long userId;
@@ -80,7 +89,7 @@ public class SendMessageResponse {
 @Data
 @AllArgsConstructor
 public class StreamEvent {
-    private String type; // "session_info", "content", "complete"
+    private String type; // "session_info", "content", "complete", "error"
     @JsonProperty("session_id") private Long sessionId;
     @JsonProperty("user_message_id") private Long userMessageId;
     @JsonProperty("ai_message_id") private Long aiMessageId;
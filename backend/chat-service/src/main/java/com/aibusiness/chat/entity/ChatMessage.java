@@ -12,6 +12,7 @@ import java.time.ZonedDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+// Schema and indexes (including idx_chat_messages_session_ts_id for keyset pagination): schema.sql
 @Table(name = "chat_messages")
 public class ChatMessage {
     @Id
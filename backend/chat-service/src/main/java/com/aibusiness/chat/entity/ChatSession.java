@@ -16,6 +16,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+// Schema: schema.sql
 @Table(name = "chat_sessions")
 public class ChatSession {
     @Id
@@ -39,6 +40,17 @@ public class ChatSession {
     @Column(name = "is_active")
     private boolean isActive = true;
 
+    // Rolling summary of the turns that no longer fit the prompt window. Only written by the
+    // bulk update in ChatSessionRepository, so saving a stale copy of the session never reverts it.
+    @Column(columnDefinition = "TEXT", insertable = false, updatable = false)
+    private String summary;
+
+    @Column(name = "summarized_up_to_id", insertable = false, updatable = false)
+    private Long summarizedUpToId; // Last message folded into the summary
+
+    @Column(name = "summary_updated_at", insertable = false, updatable = false)
+    private ZonedDateTime summaryUpdatedAt;
+
     @OneToMany(mappedBy = "session", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @OrderBy("timestamp ASC")
     private List<ChatMessage> messages = new ArrayList<>();
@@ -5,6 +5,7 @@ public class GlobalExceptionHandler {
 }
 package com.aibusiness.chat.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -19,6 +20,17 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(Map.of("detail", ex.getMessage()), HttpStatus.NOT_FOUND);
     }
 
+    // No body: streaming clients accept only text/event-stream, which a JSON error body can't be written as
+    @ExceptionHandler(TooManyStreamsException.class)
+    public ResponseEntity<Void> handleTooManyStreams(TooManyStreamsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("detail", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleGenericException(Exception ex) {
         return new ResponseEntity<>(Map.of("detail", "An internal error occurred: " + ex.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,7 @@
+package com.aibusiness.chat.exception;
+
+public class TooManyStreamsException extends RuntimeException {
+    public TooManyStreamsException(String message) {
+        super(message);
+    }
+}
@@ -1,9 +1,53 @@
 package com.aibusiness.chat.repository;
 
+import com.aibusiness.chat.dto.MessageResponse;
 import com.aibusiness.chat.entity.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+
+    // Constructor expression matching MessageResponse's field order; skips entity hydration
+    String MESSAGE_PROJECTION = "new com.aibusiness.chat.dto.MessageResponse(" +
+            "m.id, m.session.id, m.userId, m.role, m.content, m.timestamp, m.tokenCount)";
+
+    // Messages after afterId, newest first; the page size bounds what a prompt can ever load
+    @Query("SELECT m FROM ChatMessage m WHERE m.session.id = :sessionId AND m.id > :afterId ORDER BY m.id DESC")
+    List<ChatMessage> findNewestAfter(@Param("sessionId") Long sessionId, @Param("afterId") long afterId, Pageable pageable);
+
+    // Messages strictly between afterId and beforeId, oldest first, for paging forward through a backlog
+    @Query("SELECT m FROM ChatMessage m WHERE m.session.id = :sessionId AND m.id > :afterId AND m.id < :beforeId " +
+            "ORDER BY m.id ASC")
+    List<ChatMessage> findOldestBetween(@Param("sessionId") Long sessionId, @Param("afterId") long afterId,
+                                        @Param("beforeId") long beforeId, Pageable pageable);
+
+    @Query("SELECT count(m) FROM ChatMessage m WHERE m.session.id = :sessionId AND m.id > :afterId AND m.id < :beforeId")
+    long countBetween(@Param("sessionId") Long sessionId, @Param("afterId") long afterId, @Param("beforeId") long beforeId);
+
+    // --- Keyset pagination in (timestamp, id) order ---
+    @Query("SELECT m.timestamp FROM ChatMessage m WHERE m.id = :id AND m.session.id = :sessionId")
+    Optional<ZonedDateTime> findTimestamp(@Param("sessionId") Long sessionId, @Param("id") Long id);
+
+    @Query("SELECT " + MESSAGE_PROJECTION + " FROM ChatMessage m WHERE m.session.id = :sessionId " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<MessageResponse> findLatestPage(@Param("sessionId") Long sessionId, Pageable pageable);
+
+    @Query("SELECT " + MESSAGE_PROJECTION + " FROM ChatMessage m WHERE m.session.id = :sessionId " +
+            "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<MessageResponse> findPageBefore(@Param("sessionId") Long sessionId, @Param("timestamp") ZonedDateTime timestamp,
+                                         @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT " + MESSAGE_PROJECTION + " FROM ChatMessage m WHERE m.session.id = :sessionId " +
+            "AND (m.timestamp > :timestamp OR (m.timestamp = :timestamp AND m.id > :id)) " +
+            "ORDER BY m.timestamp ASC, m.id ASC")
+    List<MessageResponse> findPageAfter(@Param("sessionId") Long sessionId, @Param("timestamp") ZonedDateTime timestamp,
+                                        @Param("id") Long id, Pageable pageable);
 }
@@ -2,14 +2,27 @@ package com.aibusiness.chat.repository;
 
 import com.aibusiness.chat.entity.ChatSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ChatSessionRepository extends JpaRepository<ChatSession, Long> {
     List<ChatSession> findByUserIdAndIsActiveTrueOrderByUpdatedAtDesc(Long userId);
+    boolean existsByIdAndUserId(Long id, Long userId);
     @Query("SELECT s FROM ChatSession s LEFT JOIN FETCH s.messages WHERE s.id = :sessionId AND s.userId = :userId")
     Optional<ChatSession> findByIdAndUserIdWithMessages(Long sessionId, Long userId);
+
+    // Never moves the summary backwards if two refreshes of a session race
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChatSession s SET s.summary = :summary, s.summarizedUpToId = :upToId, s.summaryUpdatedAt = :updatedAt " +
+            "WHERE s.id = :sessionId AND (s.summarizedUpToId IS NULL OR s.summarizedUpToId < :upToId)")
+    int updateSummary(@Param("sessionId") Long sessionId, @Param("summary") String summary,
+                      @Param("upToId") Long upToId, @Param("updatedAt") ZonedDateTime updatedAt);
 }
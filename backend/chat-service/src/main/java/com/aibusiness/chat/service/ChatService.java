@@ -1,12 +1,14 @@
 package com.aibusiness.chat.service;
 // ... (imports)
 import com.aibusiness.chat.client.RagServiceClient;
+import com.aibusiness.chat.client.ReactiveRagClient;
 import com.aibusiness.chat.dto.*;
 import com.aibusiness.chat.entity.ChatMessage;
 import com.aibusiness.chat.entity.ChatSession;
 import com.aibusiness.chat.exception.SessionNotFoundException;
 import com.aibusiness.chat.repository.ChatMessageRepository;
 import com.aibusiness.chat.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
@@ -15,106 +17,302 @@ import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.SystemPromptTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChatService {
 
+    private static final String NO_CONTEXT = "No additional context was available.";
+
     private final ChatSessionRepository sessionRepository;
     private final ChatMessageRepository messageRepository;
     private final RagServiceClient ragServiceClient;
+    private final ReactiveRagClient reactiveRagClient;
     private final ChatClient chatClient;
     private final StreamingChatClient streamingChatClient;
+    private final ConversationHistoryService historyService;
+    private final ChatStreamManager streamManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService ragExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.messages.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${chat.rag.latency-budget-ms:3000}")
+    private long ragLatencyBudgetMs;
 
     // ... (CRUD methods for sessions: create, get by user, get with messages, update title, delete)
 
+    /**
+     * One page of a session's messages in (timestamp, id) order, oldest first. Without a
+     * cursor this is the latest page; {@code beforeId} pages back towards older messages and
+     * {@code afterId} forward towards newer ones. Each page is a single index range scan.
+     */
+    @Transactional(readOnly = true)
+    public MessagePageResponse getMessagePage(Long sessionId, Long userId, Long beforeId, Long afterId, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+        if (beforeId != null && afterId != null) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        if (!sessionRepository.existsByIdAndUserId(sessionId, userId)) {
+            throw new SessionNotFoundException("Session not found with id: " + sessionId);
+        }
+        // One extra row tells whether another page follows
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<MessageResponse> messages;
+        if (afterId != null) {
+            messages = new ArrayList<>(messageRepository.findPageAfter(sessionId, cursorTimestamp(sessionId, afterId), afterId, page));
+        } else {
+            messages = new ArrayList<>(beforeId != null
+                    ? messageRepository.findPageBefore(sessionId, cursorTimestamp(sessionId, beforeId), beforeId, page)
+                    : messageRepository.findLatestPage(sessionId, page));
+        }
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages.remove(messages.size() - 1);
+        }
+        if (afterId == null) {
+            Collections.reverse(messages); // Fetched newest first
+        }
+        return new MessagePageResponse(messages, hasMore);
+    }
+
+    private ZonedDateTime cursorTimestamp(Long sessionId, Long messageId) {
+        return messageRepository.findTimestamp(sessionId, messageId)
+                .orElseThrow(() -> new IllegalArgumentException("Message " + messageId + " is not part of session " + sessionId));
+    }
+
     @Transactional
     public SendMessageResponse sendMessage(SendMessageRequest request) {
+        // The RAG lookup needs only the question, so it runs while the session and history load
+        CompletableFuture<String> ragContext = fetchRagContext(request.getContent());
         ChatSession session = getOrCreateSession(request.getUserId(), request.getSessionId());
         saveUserMessage(request.getContent(), session);
+        List<Message> history = historyService.buildHistory(session);
 
-        String ragContext = getRagContext(request.getContent());
-        List<Message> history = getMessageHistory(session);
-
-        Prompt prompt = createPromptWithHistoryAndContext(history, request.getContent(), ragContext);
+        Prompt prompt = createPromptWithHistoryAndContext(history, request.getContent(), ragContext.join());
         String aiResponseContent = chatClient.prompt(prompt).call().content();
 
         ChatMessage aiMessage = saveAssistantMessage(aiResponseContent, session);
 
         session.setUpdatedAt(ZonedDateTime.now());
         sessionRepository.save(session);
+        historyService.onMessagesAdded(session);
         
         return new SendMessageResponse(mapToMessageResponse(aiMessage), mapToSessionResponse(session));
     }
 
     public SseEmitter sendMessageStream(SendMessageRequest request) {
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
-        StringBuilder fullResponseContent = new StringBuilder();
-        AtomicLong aiMessageId = new AtomicLong();
-
-        // Run async to avoid blocking
-        new Thread(() -> {
-            try {
-                ChatSession session = getOrCreateSession(request.getUserId(), request.getSessionId());
-                ChatMessage userMessage = saveUserMessage(request.getContent(), session);
-                
-                emitter.send(new StreamEvent("session_info", session.getId(), userMessage.getId(), null, null, false));
-
-                String ragContext = getRagContext(request.getContent());
-                List<Message> history = getMessageHistory(session);
-                Prompt prompt = createPromptWithHistoryAndContext(history, request.getContent(), ragContext);
-
-                Flux<String> stream = streamingChatClient.prompt(prompt).stream().content();
-
-                stream.doOnNext(chunk -> {
-                    try {
+        return streamManager.open(stream -> {
+            CompletableFuture<String> ragContext = fetchRagContext(request.getContent());
+            ChatSession session = getOrCreateSession(request.getUserId(), request.getSessionId());
+            ChatMessage userMessage = saveUserMessage(request.getContent(), session);
+
+            if (!stream.send(new StreamEvent("session_info", session.getId(), userMessage.getId(), null, null, false))) {
+                return;
+            }
+
+            List<Message> history = historyService.buildHistory(session);
+            Prompt prompt = createPromptWithHistoryAndContext(history, request.getContent(), ragContext.join());
+
+            StringBuilder fullResponseContent = new StringBuilder();
+            stream.bind(streamingChatClient.prompt(prompt).stream().content().subscribe(
+                    chunk -> {
                         fullResponseContent.append(chunk);
-                        emitter.send(new StreamEvent("content", null, null, null, chunk, false));
-                    } catch (Exception e) {
-                        emitter.completeWithError(e);
+                        stream.send(new StreamEvent("content", null, null, null, chunk, false));
+                    },
+                    stream::fail,
+                    () -> {
+                        try {
+                            ChatMessage aiMessage = saveAssistantMessage(fullResponseContent.toString(), session);
+                            session.setUpdatedAt(ZonedDateTime.now());
+                            sessionRepository.save(session);
+                            historyService.onMessagesAdded(session);
+
+                            stream.send(new StreamEvent("complete", session.getId(), null, aiMessage.getId(), null, true));
+                            stream.send(SseEmitter.event().data("[DONE]"));
+                            stream.complete();
+                        } catch (Exception e) {
+                            stream.fail(e);
+                        }
+                    }));
+        });
+    }
+
+    /**
+     * Non-blocking variant of {@link #sendMessageStream}. No thread is held while the RAG
+     * service or the model works: the RAG context comes over WebClient and the tokens from
+     * the model's flux. Database work (session lookup, history, persistence) runs on the
+     * bounded-elastic scheduler, and both messages of the turn are written in one
+     * transaction once the answer is complete, so {@code user_message_id} arrives with the
+     * "complete" event rather than with "session_info".
+     * <p>
+     * If the client leaves or the model fails, only the user's message is stored.
+     */
+    public Flux<ServerSentEvent<StreamEvent>> streamMessage(SendMessageRequest request) {
+        return streamManager.admit(() -> Mono
+                .fromCallable(() -> getOrCreateSession(request.getUserId(), request.getSessionId()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(session -> {
+                    ZonedDateTime askedAt = ZonedDateTime.now();
+                    AtomicBoolean stored = new AtomicBoolean();
+                    StringBuilder fullResponseContent = new StringBuilder();
+
+                    Mono<Prompt> prompt = Mono.zip(
+                                    getRagContextReactive(request.getContent()),
+                                    Mono.fromCallable(() -> historyService.buildHistory(session))
+                                            .subscribeOn(Schedulers.boundedElastic()))
+                            .map(parts -> createPromptWithHistoryAndContext(parts.getT2(), request.getContent(), parts.getT1()));
+
+                    Flux<ServerSentEvent<StreamEvent>> answer = prompt
+                            .flatMapMany(p -> streamingChatClient.prompt(p).stream().content())
+                            .doOnNext(fullResponseContent::append)
+                            .map(chunk -> event(new StreamEvent("content", null, null, null, chunk, false)));
+
+                    Mono<ServerSentEvent<StreamEvent>> complete = Mono
+                            .fromCallable(() -> storeTurn(session, request, askedAt, fullResponseContent.toString(), stored))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .map(turn -> event(new StreamEvent("complete", session.getId(), turn.userMessageId(), turn.aiMessageId(), null, true)));
+
+                    return Flux.concat(
+                                    Mono.just(event(new StreamEvent("session_info", session.getId(), null, null, null, false))),
+                                    answer,
+                                    complete)
+                            .onErrorResume(e -> {
+                                log.error("Reactive chat stream failed: {}", e.getMessage(), e);
+                                return storeQuestion(session, request, askedAt, stored)
+                                        .thenReturn(event(new StreamEvent("error", session.getId(), null, null,
+                                                "The response could not be completed", true)));
+                            })
+                            .doOnCancel(() -> storeQuestion(session, request, askedAt, stored).subscribe());
+                }));
+    }
+
+    private record StoredTurn(Long userMessageId, Long aiMessageId) {}
+
+    private StoredTurn storeTurn(ChatSession session, SendMessageRequest request, ZonedDateTime askedAt,
+                                 String answer, AtomicBoolean stored) {
+        if (!stored.compareAndSet(false, true)) {
+            throw new IllegalStateException("Turn of session " + session.getId() + " already stored");
+        }
+        StoredTurn turn = transactionTemplate.execute(status -> {
+            List<ChatMessage> saved = messageRepository.saveAll(List.of(
+                    newMessage(session, request.getUserId(), "user", request.getContent(), askedAt),
+                    newMessage(session, request.getUserId(), "assistant", answer, ZonedDateTime.now())));
+            session.setUpdatedAt(ZonedDateTime.now());
+            sessionRepository.save(session);
+            return new StoredTurn(saved.get(0).getId(), saved.get(1).getId());
+        });
+        historyService.onMessagesAdded(session);
+        return turn;
+    }
+
+    // Keeps the question of an unfinished turn; a no-op once the turn has been stored
+    private Mono<Void> storeQuestion(ChatSession session, SendMessageRequest request, ZonedDateTime askedAt,
+                                     AtomicBoolean stored) {
+        return Mono.fromRunnable(() -> {
+                    if (stored.compareAndSet(false, true)) {
+                        messageRepository.save(newMessage(session, request.getUserId(), "user", request.getContent(), askedAt));
                     }
-                }).doOnComplete(() -> {
-                    try {
-                        ChatMessage aiMessage = saveAssistantMessage(fullResponseContent.toString(), session);
-                        aiMessageId.set(aiMessage.getId());
-                        session.setUpdatedAt(ZonedDateTime.now());
-                        sessionRepository.save(session);
-                        
-                        emitter.send(new StreamEvent("complete", session.getId(), null, aiMessageId.get(), null, true));
-                        emitter.send(SseEmitter.event().data("[DONE]"));
-                        emitter.complete();
-                    } catch (Exception e) {
-                        emitter.completeWithError(e);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.error("Failed to store the message of session {}: {}", session.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static ChatMessage newMessage(ChatSession session, Long userId, String role, String content, ZonedDateTime timestamp) {
+        return ChatMessage.builder()
+                .session(session)
+                .userId(userId)
+                .role(role)
+                .content(content)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static ServerSentEvent<StreamEvent> event(StreamEvent event) {
+        return ServerSentEvent.builder(event).event(event.getType()).build();
+    }
+
+    private Mono<String> getRagContextReactive(String query) {
+        return reactiveRagClient.retrieveContext(new RagQueryRequest(query))
+                .timeout(Duration.ofMillis(ragLatencyBudgetMs))
+                .map(response -> String.join("\n---\n", response.getContext()))
+                .onErrorResume(e -> {
+                    if (e instanceof TimeoutException) {
+                        ragBudgetExceeded("reactive");
+                    } else {
+                        log.error("Failed to get RAG context: {}", e.getMessage());
                     }
-                }).subscribe();
-            } catch (Exception e) {
-                emitter.completeWithError(e);
-            }
-        }).start();
+                    return Mono.just(NO_CONTEXT);
+                });
+    }
 
-        return emitter;
+    /**
+     * Starts the RAG lookup on {@code ragExecutor}. The future never fails: past
+     * {@code chat.rag.latency-budget-ms}, on an error or with the pool saturated it holds
+     * {@link #NO_CONTEXT} and the answer is generated without retrieved context.
+     */
+    private CompletableFuture<String> fetchRagContext(String query) {
+        try {
+            // getRagContext never throws, so a failed lookup can only be the budget running out
+            return CompletableFuture.supplyAsync(() -> getRagContext(query), ragExecutor)
+                    .orTimeout(ragLatencyBudgetMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> {
+                        ragBudgetExceeded("blocking");
+                        return NO_CONTEXT;
+                    });
+        } catch (RejectedExecutionException e) {
+            log.warn("RAG lookups saturated, answering without context");
+            return CompletableFuture.completedFuture(NO_CONTEXT);
+        }
     }
 
     private String getRagContext(String query) {
         try {
-            RagQueryResponse response = ragServiceClient.queryRag(new RagQueryRequest(query));
+            RagQueryResponse response = ragServiceClient.retrieveContext(new RagQueryRequest(query));
             return String.join("\n---\n", response.getContext());
         } catch (Exception e) {
             log.error("Failed to get RAG context: {}", e.getMessage());
-            return "No additional context was available.";
+            return NO_CONTEXT;
         }
     }
+
+    // How often answers go out without context because retrieval missed chat.rag.latency-budget-ms
+    private void ragBudgetExceeded(String path) {
+        meterRegistry.counter("chat.rag.budget_exceeded", "path", path).increment();
+        log.warn("RAG retrieval exceeded its {} ms budget, answering without context", ragLatencyBudgetMs);
+    }
     
-    // ... (helper methods: getOrCreateSession, saveUserMessage, saveAssistantMessage, getMessageHistory, createPrompt, mappers)
+    // ... (helper methods: getOrCreateSession, saveUserMessage, saveAssistantMessage, createPrompt, mappers)
 }
@@ -0,0 +1,227 @@
+package com.aibusiness.chat.service;
+
+import com.aibusiness.chat.exception.TooManyStreamsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs streaming chat responses with bounded resources. A stream holds one of
+ * {@code chat.streaming.max-active} permits from admission until its emitter finishes;
+ * when none is free, or the setup pool's queue is full, the request is rejected with
+ * {@link TooManyStreamsException} instead of piling up threads and open connections.
+ * <p>
+ * The blocking setup (session, RAG context, history) runs on the bounded
+ * {@code streamExecutor}; the model's token stream then runs on Reactor threads. Emitters
+ * time out after {@code chat.streaming.timeout-ms}, and a timeout, a failed write to a
+ * disconnected client or a container error cancels the upstream subscription.
+ * <p>
+ * Reactive streams ({@link #admit(Supplier)}) hold no thread while they wait on the RAG
+ * service or the model, so they draw from a separate, much larger pool of
+ * {@code chat.streaming.reactive-max-active} permits.
+ */
+@Component
+@Slf4j
+public class ChatStreamManager {
+
+    @FunctionalInterface
+    public interface StreamBody {
+        void run(ChatStream stream) throws Exception;
+    }
+
+    private final ExecutorService streamExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore permits;
+    private final Semaphore reactivePermits;
+    private final long timeoutMs;
+    private final Counter rejected;
+
+    public ChatStreamManager(ExecutorService streamExecutor,
+                             MeterRegistry meterRegistry,
+                             @Value("${chat.streaming.max-active:200}") int maxActive,
+                             @Value("${chat.streaming.reactive-max-active:20000}") int reactiveMaxActive,
+                             @Value("${chat.streaming.timeout-ms:120000}") long timeoutMs) {
+        this.streamExecutor = streamExecutor;
+        this.meterRegistry = meterRegistry;
+        this.permits = new Semaphore(maxActive);
+        this.reactivePermits = new Semaphore(reactiveMaxActive);
+        this.timeoutMs = timeoutMs;
+        this.rejected = meterRegistry.counter("chat.streams.rejected");
+        Gauge.builder("chat.streams.active", () -> maxActive - permits.availablePermits()).register(meterRegistry);
+        Gauge.builder("chat.streams.reactive.active", () -> reactiveMaxActive - reactivePermits.availablePermits())
+                .register(meterRegistry);
+        if (streamExecutor instanceof ThreadPoolExecutor pool) {
+            Gauge.builder("chat.streams.setup.queued", () -> pool.getQueue().size()).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Admits a stream and runs {@code body} on the setup pool. The body sends events through
+     * the {@link ChatStream} and must end it with {@link ChatStream#complete()} or
+     * {@link ChatStream#fail(Throwable)}; an exception thrown by the body fails the stream.
+     *
+     * @throws TooManyStreamsException when the service is saturated
+     */
+    public SseEmitter open(StreamBody body) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new TooManyStreamsException("Too many concurrent streams, retry shortly");
+        }
+        ChatStream stream = new ChatStream(new SseEmitter(timeoutMs));
+        try {
+            streamExecutor.execute(() -> {
+                if (stream.isClosed()) {
+                    return; // The client left while the request was queued
+                }
+                try {
+                    body.run(stream);
+                } catch (Exception e) {
+                    stream.fail(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stream.close("rejected");
+            rejected.increment();
+            throw new TooManyStreamsException("Too many concurrent streams, retry shortly");
+        }
+        return stream.emitter;
+    }
+
+    /**
+     * Admits a reactive stream. The permit is taken here, on the request thread, so a
+     * saturated service still answers 429 before the response is committed; it is released
+     * when the returned flux terminates or is cancelled, which bounds the stream by
+     * {@code chat.streaming.timeout-ms} as well.
+     *
+     * @throws TooManyStreamsException when the service is saturated
+     */
+    public <T> Flux<T> admit(Supplier<Flux<T>> body) {
+        if (!reactivePermits.tryAcquire()) {
+            rejected.increment();
+            throw new TooManyStreamsException("Too many concurrent streams, retry shortly");
+        }
+        Timer.Sample sample = Timer.start();
+        AtomicBoolean released = new AtomicBoolean();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        return Flux.defer(body)
+                // Ends the stream and cancels the upstream once the deadline passes
+                .takeUntilOther(Mono.delay(Duration.ofMillis(timeoutMs)).doOnNext(tick -> timedOut.set(true)))
+                .doFinally(signal -> {
+                    if (released.compareAndSet(false, true)) {
+                        reactivePermits.release();
+                        String outcome = timedOut.get() ? "timeout" : outcome(signal);
+                        sample.stop(meterRegistry.timer("chat.streams.reactive", "outcome", outcome));
+                    }
+                });
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "completed";
+            case CANCEL -> "disconnected";
+            default -> "error";
+        };
+    }
+
+    /**
+     * One admitted stream. Every way it can end releases its permit exactly once and
+     * disposes the upstream subscription.
+     */
+    public final class ChatStream {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicReference<Disposable> upstream = new AtomicReference<>();
+        private final Timer.Sample sample = Timer.start();
+
+        private ChatStream(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onTimeout(() -> {
+                close("timeout");
+                emitter.complete();
+            });
+            emitter.onError(e -> close("error"));
+            emitter.onCompletion(() -> close("completed"));
+        }
+
+        public boolean isClosed() {
+            return closed.get();
+        }
+
+        /**
+         * Ties the model's subscription to this stream; disposed at once if the stream has
+         * already ended.
+         */
+        public void bind(Disposable subscription) {
+            upstream.set(subscription);
+            if (isClosed()) {
+                subscription.dispose();
+            }
+        }
+
+        /**
+         * Sends an event, returning false if the stream has ended. A failed write means the
+         * client disconnected, which ends the stream and cancels the upstream.
+         */
+        public boolean send(Object event) {
+            if (isClosed()) {
+                return false;
+            }
+            try {
+                if (event instanceof SseEmitter.SseEventBuilder builder) {
+                    emitter.send(builder);
+                } else {
+                    emitter.send(event);
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                close("disconnected");
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+
+        public void complete() {
+            emitter.complete(); // onCompletion records the outcome once the container is done
+        }
+
+        public void fail(Throwable error) {
+            if (close("error")) {
+                log.error("Chat stream failed: {}", error.getMessage(), error);
+            }
+            emitter.completeWithError(error);
+        }
+
+        private boolean close(String outcome) {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            Disposable subscription = upstream.get();
+            if (subscription != null) {
+                subscription.dispose();
+            }
+            permits.release();
+            sample.stop(meterRegistry.timer("chat.streams", "outcome", outcome));
+            return true;
+        }
+    }
+}
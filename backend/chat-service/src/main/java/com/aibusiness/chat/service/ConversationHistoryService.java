@@ -0,0 +1,197 @@
+package com.aibusiness.chat.service;
+
+import com.aibusiness.chat.entity.ChatMessage;
+import com.aibusiness.chat.entity.ChatSession;
+import com.aibusiness.chat.repository.ChatMessageRepository;
+import com.aibusiness.chat.repository.ChatSessionRepository;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Builds the conversation history sent with each prompt: a sliding window of the most
+ * recent turns that fits a token budget, preceded by a rolling summary of the turns that
+ * fell out of it. The prompt therefore stays the same size however long a session gets.
+ * <p>
+ * The summary is stored on {@link ChatSession} and refreshed in the background once
+ * {@code chat.history.summarize-every} messages have fallen out of the window without being
+ * summarized. Until then those turns stay in the prompt verbatim, so nothing drops out of
+ * the history before the summary covers it; the prompt can exceed the window by at most
+ * that many messages.
+ */
+@Service
+@Slf4j
+public class ConversationHistoryService {
+
+    private static final String SUMMARY_INSTRUCTIONS = """
+            You maintain a running summary of a conversation between a user and an assistant.
+            Merge the new turns into the current summary. Keep facts, names, numbers, decisions,
+            user preferences and open questions; drop greetings and small talk.
+            Write at most %d words and reply with the summary only.""";
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final ChatClient chatClient;
+    private final ExecutorService summaryExecutor;
+    private final Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    private final Set<Long> summarizing = ConcurrentHashMap.newKeySet();
+
+    private final int windowTokens;
+    private final int summaryTokens;
+    private final int maxMessages;
+    private final int summarizeEvery;
+
+    public ConversationHistoryService(ChatSessionRepository sessionRepository,
+                                      ChatMessageRepository messageRepository,
+                                      ChatClient chatClient,
+                                      ExecutorService summaryExecutor,
+                                      @Value("${chat.history.window-tokens:2000}") int windowTokens,
+                                      @Value("${chat.history.summary-tokens:400}") int summaryTokens,
+                                      @Value("${chat.history.max-messages:100}") int maxMessages,
+                                      @Value("${chat.history.summarize-every:10}") int summarizeEvery) {
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.chatClient = chatClient;
+        this.summaryExecutor = summaryExecutor;
+        this.windowTokens = windowTokens;
+        this.summaryTokens = summaryTokens;
+        this.maxMessages = maxMessages;
+        this.summarizeEvery = summarizeEvery;
+    }
+
+    /**
+     * The history for the next prompt, oldest first: the summary as a system message (if
+     * there is one) followed by every turn it does not cover yet, i.e. the window plus the
+     * turns evicted from it since the last refresh. Only the newest
+     * {@code chat.history.max-messages} are ever loaded.
+     */
+    public List<Message> buildHistory(ChatSession session) {
+        List<Message> history = new ArrayList<>();
+        if (session.getSummary() != null) {
+            history.add(new SystemMessage("Summary of the earlier conversation:\n" + session.getSummary()));
+        }
+        List<ChatMessage> unsummarized = new ArrayList<>(unsummarized(session));
+        Collections.reverse(unsummarized);
+        for (ChatMessage message : unsummarized) {
+            history.add("assistant".equals(message.getRole())
+                    ? new AssistantMessage(message.getContent())
+                    : new UserMessage(message.getContent()));
+        }
+        return history;
+    }
+
+    /**
+     * Called after a turn has been stored. Schedules a summary refresh once enough messages
+     * have been evicted from the window since the last one; at most one refresh per session
+     * runs at a time.
+     */
+    public void onMessagesAdded(ChatSession session) {
+        long since = session.getSummarizedUpToId() != null ? session.getSummarizedUpToId() : 0;
+        List<ChatMessage> window = window(unsummarized(session));
+        if (window.isEmpty()
+                || messageRepository.countBetween(session.getId(), since, window.get(0).getId()) < summarizeEvery
+                || !summarizing.add(session.getId())) {
+            return;
+        }
+        summaryExecutor.execute(() -> {
+            try {
+                refreshSummary(session.getId());
+            } catch (Exception e) {
+                // The previous summary stays in place and the next turn retries
+                log.warn("Failed to refresh the summary of session {}: {}", session.getId(), e.getMessage());
+            } finally {
+                summarizing.remove(session.getId());
+            }
+        });
+    }
+
+    /**
+     * Folds every turn that no longer fits the window into the summary. The evicted turns
+     * are paged forward from the last summarized one, {@code chat.history.max-messages} per
+     * model call, so a backlog larger than one page is summarized in full rather than skipped.
+     */
+    private void refreshSummary(Long sessionId) {
+        ChatSession session = sessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return;
+        }
+        List<ChatMessage> window = window(unsummarized(session));
+        if (window.isEmpty()) {
+            return;
+        }
+        long windowStart = window.get(0).getId();
+        long after = session.getSummarizedUpToId() != null ? session.getSummarizedUpToId() : 0;
+        String summary = session.getSummary();
+        int summarized = 0;
+        List<ChatMessage> evicted;
+        do {
+            evicted = messageRepository.findOldestBetween(sessionId, after, windowStart, PageRequest.of(0, maxMessages));
+            if (evicted.isEmpty()) {
+                break;
+            }
+            StringBuilder turns = new StringBuilder();
+            for (ChatMessage message : evicted) {
+                turns.append(message.getRole()).append(": ").append(message.getContent()).append('\n');
+            }
+            summary = truncate(chatClient.prompt()
+                    .system(SUMMARY_INSTRUCTIONS.formatted(summaryTokens * 3 / 4))
+                    .user("Current summary:\n" + (summary != null ? summary : "(none)") +
+                            "\n\nNew turns:\n" + turns)
+                    .call()
+                    .content()
+                    .strip());
+            after = evicted.get(evicted.size() - 1).getId();
+            // Stored per page so a failure later in the backlog keeps the progress made so far
+            sessionRepository.updateSummary(sessionId, summary, after, ZonedDateTime.now());
+            summarized += evicted.size();
+        } while (evicted.size() == maxMessages);
+        log.debug("Summarized {} messages of session {}", summarized, sessionId);
+    }
+
+    private List<ChatMessage> unsummarized(ChatSession session) {
+        long after = session.getSummarizedUpToId() != null ? session.getSummarizedUpToId() : 0;
+        return messageRepository.findNewestAfter(session.getId(), after, PageRequest.of(0, maxMessages));
+    }
+
+    /**
+     * The newest messages that fit the window budget, oldest first. The newest message is
+     * always included, even when it alone exceeds the budget.
+     */
+    private List<ChatMessage> window(List<ChatMessage> newestFirst) {
+        List<ChatMessage> window = new ArrayList<>();
+        int tokens = 0;
+        for (ChatMessage message : newestFirst) {
+            int messageTokens = message.getTokenCount() > 0 ? message.getTokenCount() : encoding.countTokens(message.getContent());
+            if (!window.isEmpty() && tokens + messageTokens > windowTokens) {
+                break;
+            }
+            window.add(message);
+            tokens += messageTokens;
+        }
+        Collections.reverse(window);
+        return window;
+    }
+
+    // The model is asked for a word limit; this only guards the prompt budget if it overshoots
+    private String truncate(String summary) {
+        int tokens = encoding.countTokens(summary);
+        return tokens <= summaryTokens ? summary : summary.substring(0, (int) ((long) summary.length() * summaryTokens / tokens));
+    }
+}
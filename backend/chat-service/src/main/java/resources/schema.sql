@@ -0,0 +1,29 @@
+-- chat_db schema. Hibernate only validates it (ddl-auto: validate); Spring runs this script at
+-- startup, before validation (spring.sql.init), so every statement must be idempotent.
+
+CREATE TABLE IF NOT EXISTS chat_sessions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE,
+    updated_at TIMESTAMP WITH TIME ZONE,
+    is_active BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE TABLE IF NOT EXISTS chat_messages (
+    id BIGSERIAL PRIMARY KEY,
+    session_id BIGINT NOT NULL REFERENCES chat_sessions (id),
+    user_id BIGINT NOT NULL,
+    role VARCHAR(255) NOT NULL,
+    content TEXT NOT NULL,
+    timestamp TIMESTAMP WITH TIME ZONE,
+    token_count INT NOT NULL DEFAULT 0
+);
+
+-- Rolling summary of the turns that fell out of the history window (ConversationHistoryService)
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS summary TEXT;
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS summarized_up_to_id BIGINT;
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS summary_updated_at TIMESTAMP WITH TIME ZONE;
+
+-- Keyset pagination of a session's messages in (timestamp, id) order
+CREATE INDEX IF NOT EXISTS idx_chat_messages_session_ts_id ON chat_messages (session_id, timestamp, id);
@@ -0,0 +1,147 @@
+package com.aibusiness.chat.repository;
+
+import com.aibusiness.chat.dto.MessageResponse;
+import com.aibusiness.chat.entity.ChatMessage;
+import com.aibusiness.chat.entity.ChatSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keyset pagination in (timestamp, id) order, including messages that share a timestamp.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.sql.init.mode=never",
+        // chat_messages has a column named "timestamp"
+        "spring.jpa.properties.hibernate.auto_quote_keyword=true"
+})
+class ChatMessageRepositoryTest {
+
+    // The application class also enables Feign clients, which a JPA slice can't create
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = ChatSession.class)
+    @EnableJpaRepositories(basePackageClasses = ChatMessageRepository.class)
+    static class JpaConfig {
+    }
+
+    private static final ZonedDateTime T0 = ZonedDateTime.parse("2024-05-01T10:00:00Z");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatMessageRepository repository;
+
+    private ChatSession session;
+    private List<Long> ids; // In (timestamp, id) order
+
+    @BeforeEach
+    void setUp() {
+        session = entityManager.persist(ChatSession.builder().userId(1L).title("Session").messages(new ArrayList<>()).build());
+        ChatSession other = entityManager.persist(ChatSession.builder().userId(2L).title("Other").messages(new ArrayList<>()).build());
+        ids = new ArrayList<>();
+        ids.add(persist(session, T0));
+        // Three messages within the same instant, ordered by id
+        ids.add(persist(session, T0.plusSeconds(1)));
+        ids.add(persist(session, T0.plusSeconds(1)));
+        ids.add(persist(session, T0.plusSeconds(1)));
+        ids.add(persist(session, T0.plusSeconds(2)));
+        persist(other, T0.plusSeconds(1));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void latestPageIsNewestFirst() {
+        assertThat(ids(repository.findLatestPage(session.getId(), PageRequest.of(0, 2))))
+                .containsExactly(ids.get(4), ids.get(3));
+    }
+
+    @Test
+    void pageBeforeBreaksTimestampTiesById() {
+        Long cursor = ids.get(3);
+
+        assertThat(ids(repository.findPageBefore(session.getId(), timestamp(cursor), cursor, PageRequest.of(0, 2))))
+                .containsExactly(ids.get(2), ids.get(1));
+    }
+
+    @Test
+    void pageAfterBreaksTimestampTiesById() {
+        Long cursor = ids.get(1);
+
+        assertThat(ids(repository.findPageAfter(session.getId(), timestamp(cursor), cursor, PageRequest.of(0, 2))))
+                .containsExactly(ids.get(2), ids.get(3));
+    }
+
+    @Test
+    void pagingBackwardsVisitsEveryMessageOnce() {
+        List<Long> visited = new ArrayList<>();
+        List<MessageResponse> page = repository.findLatestPage(session.getId(), PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            visited.addAll(ids(page));
+            Long cursor = page.get(page.size() - 1).getId();
+            page = repository.findPageBefore(session.getId(), timestamp(cursor), cursor, PageRequest.of(0, 2));
+        }
+
+        assertThat(visited).containsExactly(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0));
+    }
+
+    @Test
+    void pagesNeverIncludeOtherSessions() {
+        Long cursor = ids.get(0);
+
+        assertThat(ids(repository.findPageAfter(session.getId(), timestamp(cursor), cursor, PageRequest.of(0, 10))))
+                .containsExactly(ids.get(1), ids.get(2), ids.get(3), ids.get(4));
+    }
+
+    @Test
+    void cursorOfAnotherSessionIsNotFound() {
+        ChatSession other = entityManager.persist(ChatSession.builder().userId(3L).title("Third").messages(new ArrayList<>()).build());
+
+        assertThat(repository.findTimestamp(other.getId(), ids.get(0))).isEmpty();
+    }
+
+    @Test
+    void projectionCarriesTheMessageFields() {
+        MessageResponse latest = repository.findLatestPage(session.getId(), PageRequest.of(0, 1)).get(0);
+
+        assertThat(latest.getSessionId()).isEqualTo(session.getId());
+        assertThat(latest.getRole()).isEqualTo("user");
+        assertThat(latest.getContent()).isEqualTo("message " + ids.get(4));
+        assertThat(latest.getTokenCount()).isEqualTo(3);
+    }
+
+    private Long persist(ChatSession owner, ZonedDateTime timestamp) {
+        ChatMessage message = entityManager.persist(ChatMessage.builder()
+                .session(owner)
+                .userId(owner.getUserId())
+                .role("user")
+                .content("pending")
+                .timestamp(timestamp)
+                .tokenCount(3)
+                .build());
+        message.setContent("message " + message.getId());
+        return message.getId();
+    }
+
+    private ZonedDateTime timestamp(Long messageId) {
+        return repository.findTimestamp(session.getId(), messageId).orElseThrow();
+    }
+
+    private static List<Long> ids(List<MessageResponse> messages) {
+        return messages.stream().map(MessageResponse::getId).toList();
+    }
+}
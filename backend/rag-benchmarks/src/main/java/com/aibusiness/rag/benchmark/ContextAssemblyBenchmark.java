@@ -0,0 +1,61 @@
+package com.aibusiness.rag.benchmark;
+
+import com.aibusiness.rag.service.ContextAssembler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of packing ranked chunks into the prompt budget. Neighbouring chunks share a
+ * sentence, as overlapping splitter output does, so de-duplication has work to do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextAssemblyBenchmark {
+
+    @Param({"4", "8", "16", "32"})
+    public int chunks;
+
+    @Param({"1000", "3000"})
+    public int maxTokens;
+
+    private ContextAssembler assembler;
+    private List<Document> rankedChunks;
+
+    @Setup
+    public void setUp() {
+        assembler = new ContextAssembler(maxTokens, 48);
+        List<SyntheticCorpus.Chunk> corpus = SyntheticCorpus.generate(20, 0, 42).chunks();
+        rankedChunks = new ArrayList<>(chunks);
+        String previousTail = "";
+        for (int i = 0; i < chunks; i++) {
+            SyntheticCorpus.Chunk chunk = corpus.get(i % corpus.size());
+            rankedChunks.add(new Document(chunk.id(), previousTail + chunk.text(), Map.of("source", chunk.documentId())));
+            String[] sentences = chunk.text().split("(?<=\\.) ");
+            previousTail = sentences[sentences.length - 1] + " ";
+        }
+    }
+
+    @Benchmark
+    public ContextAssembler.AssembledContext assemble() {
+        return assembler.assemble(rankedChunks);
+    }
+}
@@ -0,0 +1,74 @@
+package com.aibusiness.rag.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedding a source's chunks the way EmbeddingPipelineService does: micro-batches of
+ * {@code batchSize} spread over {@code workers} threads, against a model with a fixed
+ * per-request latency. Shows how much of ingestion time is request overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmbeddingBatchingBenchmark {
+
+    @Param({"1", "8", "32", "128"})
+    public int batchSize;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    @Param({"5"})
+    public int requestLatencyMs;
+
+    private HashingEmbeddingModel model;
+    private ExecutorService executor;
+    private List<String> texts;
+
+    @Setup
+    public void setUp() {
+        model = new HashingEmbeddingModel(384, Duration.ofMillis(requestLatencyMs));
+        executor = Executors.newFixedThreadPool(workers);
+        texts = SyntheticCorpus.generate(60, 0, 42).chunks().stream()
+                .map(SyntheticCorpus.Chunk::text)
+                .limit(256)
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int embedSource() {
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        for (int start = 0; start < texts.size(); start += batchSize) {
+            List<String> batch = texts.subList(start, Math.min(start + batchSize, texts.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> model.embed(batch).size(), executor));
+        }
+        return batches.stream().mapToInt(CompletableFuture::join).sum();
+    }
+}
@@ -0,0 +1,40 @@
+package com.aibusiness.rag.benchmark;
+
+import com.aibusiness.rag.service.VectorArena;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Brute-force top-k over a {@link VectorArena}, the ground truth approximate searches are
+ * measured against.
+ */
+final class ExactSearch {
+
+    private ExactSearch() {
+    }
+
+    /**
+     * Node ids of the {@code k} best scoring nodes among {@code 0..size-1}, best first.
+     */
+    static List<Integer> topK(VectorArena.NodeScorer scorer, int size, int k) {
+        PriorityQueue<float[]> heap = new PriorityQueue<>(k + 1, (a, b) -> Float.compare(a[0], b[0]));
+        for (int node = 0; node < size; node++) {
+            float score = scorer.score(node);
+            if (heap.size() < k) {
+                heap.add(new float[]{score, node});
+            } else if (score > heap.peek()[0]) {
+                heap.poll();
+                heap.add(new float[]{score, node});
+            }
+        }
+        List<Integer> nodes = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            nodes.add((int) heap.poll()[1]);
+        }
+        Collections.reverse(nodes);
+        return nodes;
+    }
+}
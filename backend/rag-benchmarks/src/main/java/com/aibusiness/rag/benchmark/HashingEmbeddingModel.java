@@ -0,0 +1,99 @@
+package com.aibusiness.rag.benchmark;
+
+import com.aibusiness.rag.service.VectorMath;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic local stand-in for the embedding model: words and word bigrams are
+ * feature-hashed (signed) into a fixed number of dimensions and the result is L2
+ * normalised. Texts that share vocabulary end up close, which is all retrieval
+ * benchmarks need, and every run produces identical vectors.
+ * <p>
+ * An optional per-request latency models the round trip to a hosted model, so batching
+ * effects show up in benchmarks.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final Duration requestLatency;
+
+    public HashingEmbeddingModel(int dimensions) {
+        this(dimensions, Duration.ZERO);
+    }
+
+    public HashingEmbeddingModel(int dimensions, Duration requestLatency) {
+        this.dimensions = dimensions;
+        this.requestLatency = requestLatency;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (!requestLatency.isZero()) {
+            try {
+                Thread.sleep(requestLatency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while simulating model latency", e);
+            }
+        }
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(VectorMath.toDoubleList(vector(texts.get(i))), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        return VectorMath.toDoubleList(vector(document.getContent()));
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * The unit-length embedding of a text, without the simulated latency.
+     */
+    public float[] vector(String text) {
+        float[] vector = new float[dimensions];
+        String previous = null;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            add(vector, word, 1f);
+            if (previous != null) {
+                add(vector, previous + ' ' + word, 0.5f);
+            }
+            previous = word;
+        }
+        return VectorMath.normalize(vector);
+    }
+
+    private void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        vector[Math.floorMod(hash, dimensions)] += (hash & 0x40000000) != 0 ? weight : -weight;
+    }
+
+    private static int mix(int h) {
+        // Murmur3 finalizer, spreads String.hashCode over all bits
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
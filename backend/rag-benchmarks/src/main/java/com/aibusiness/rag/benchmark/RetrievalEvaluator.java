@@ -0,0 +1,174 @@
+package com.aibusiness.rag.benchmark;
+
+import com.aibusiness.rag.repository.VectorChunkRepository;
+import com.aibusiness.rag.service.FloatVectorArena;
+import com.aibusiness.rag.service.HnswIndex;
+import com.aibusiness.rag.service.Int8VectorArena;
+import com.aibusiness.rag.service.ScalarQuantizer;
+import com.aibusiness.rag.service.VectorArena;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Offline retrieval quality check on the {@link SyntheticCorpus}: recall@k, MRR and
+ * latency of every retrieval configuration, with {@link HashingEmbeddingModel} standing in
+ * for the embedding model.
+ * <ul>
+ *     <li>{@code --backend=memory} (default) compares the in-memory HNSW index, full
+ *     precision and int8 with and without full-precision re-ranking, against an exact scan.</li>
+ *     <li>{@code --backend=pgvector} starts a throwaway pgvector container (needs Docker) and
+ *     runs the VectorChunkRepository queries rag-service uses: HNSW, exact scan and full-text.</li>
+ * </ul>
+ * Other options: {@code --documents=2000 --queries=500 --k=10 --dimensions=384 --ef-search=64 --seed=42}.
+ */
+public final class RetrievalEvaluator {
+
+    private static final int RERANK_DEPTH = 50;
+
+    private RetrievalEvaluator() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        String backend = options.getOrDefault("backend", "memory");
+        int documents = Integer.parseInt(options.getOrDefault("documents", "2000"));
+        int queries = Integer.parseInt(options.getOrDefault("queries", "500"));
+        int k = Integer.parseInt(options.getOrDefault("k", "10"));
+        int dimensions = Integer.parseInt(options.getOrDefault("dimensions", "384"));
+        int efSearch = Integer.parseInt(options.getOrDefault("ef-search", "64"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        SyntheticCorpus corpus = SyntheticCorpus.generate(documents, queries, seed);
+        HashingEmbeddingModel model = new HashingEmbeddingModel(dimensions);
+        System.out.printf("Corpus: %d documents, %d chunks, %d queries, %d dimensions%n",
+                corpus.documents().size(), corpus.chunks().size(), corpus.queries().size(), dimensions);
+
+        List<RetrievalMetrics> results = switch (backend) {
+            case "memory" -> evaluateInMemory(corpus, model, k, efSearch);
+            case "pgvector" -> evaluatePgvector(corpus, model, k, efSearch);
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        };
+        System.out.println(RetrievalMetrics.header(k));
+        results.forEach(System.out::println);
+    }
+
+    private static List<RetrievalMetrics> evaluateInMemory(SyntheticCorpus corpus, HashingEmbeddingModel model, int k, int efSearch) {
+        List<String> ids = corpus.chunks().stream().map(SyntheticCorpus.Chunk::id).toList();
+        List<float[]> vectors = corpus.chunks().stream().map(chunk -> model.vector(chunk.text())).toList();
+
+        FloatVectorArena exact = new FloatVectorArena(model.dimensions());
+        for (int node = 0; node < vectors.size(); node++) {
+            exact.set(node, vectors.get(node));
+        }
+        HnswIndex floatIndex = new HnswIndex(new FloatVectorArena(model.dimensions()), model.dimensions(), 16, 200);
+        HnswIndex int8Index = new HnswIndex(new Int8VectorArena(ScalarQuantizer.fit(vectors)), model.dimensions(), 16, 200);
+        for (float[] vector : vectors) {
+            floatIndex.add(vector);
+            int8Index.add(vector);
+        }
+
+        RetrievalMetrics exactMetrics = new RetrievalMetrics("exact scan", k);
+        RetrievalMetrics floatMetrics = new RetrievalMetrics("hnsw float ef=" + efSearch, k);
+        RetrievalMetrics int8Metrics = new RetrievalMetrics("hnsw int8 ef=" + efSearch, k);
+        RetrievalMetrics rerankedMetrics = new RetrievalMetrics("hnsw int8 + rerank " + RERANK_DEPTH, k);
+        for (SyntheticCorpus.Query query : corpus.queries()) {
+            float[] embedding = model.vector(query.text());
+
+            long start = System.nanoTime();
+            List<Integer> exactNodes = ExactSearch.topK(exact.scorer(embedding), vectors.size(), k);
+            exactMetrics.record(toIds(exactNodes, ids), query.relevantChunkIds(), System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<Integer> floatNodes = nodes(floatIndex.search(embedding, k, efSearch));
+            floatMetrics.record(toIds(floatNodes, ids), query.relevantChunkIds(), System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<Integer> int8Nodes = nodes(int8Index.search(embedding, k, efSearch));
+            int8Metrics.record(toIds(int8Nodes, ids), query.relevantChunkIds(), System.nanoTime() - start);
+
+            start = System.nanoTime();
+            VectorArena.NodeScorer fullPrecision = exact.scorer(embedding);
+            List<Integer> candidates = new ArrayList<>(nodes(int8Index.search(embedding, RERANK_DEPTH, Math.max(efSearch, RERANK_DEPTH))));
+            candidates.sort(Comparator.comparingDouble((Integer node) -> fullPrecision.score(node)).reversed());
+            List<Integer> reranked = candidates.subList(0, Math.min(k, candidates.size()));
+            rerankedMetrics.record(toIds(reranked, ids), query.relevantChunkIds(), System.nanoTime() - start);
+        }
+        return List.of(exactMetrics, floatMetrics, int8Metrics, rerankedMetrics);
+    }
+
+    private static List<RetrievalMetrics> evaluatePgvector(SyntheticCorpus corpus, HashingEmbeddingModel model, int k, int efSearch) {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+                DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"))) {
+            postgres.start();
+            DataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            // The schema PgVectorStore creates, plus the indexes VectorSchemaInitializer adds for the shared corpus
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            jdbcTemplate.execute("CREATE TABLE vector_store (id uuid PRIMARY KEY, content text, metadata json, " +
+                    "embedding vector(" + model.dimensions() + "))");
+            VectorChunkRepository repository = new VectorChunkRepository(jdbcTemplate, new ObjectMapper(),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource)), model.dimensions(), 4);
+
+            List<SyntheticCorpus.Chunk> chunks = corpus.chunks();
+            for (int start = 0; start < chunks.size(); start += 500) {
+                List<SyntheticCorpus.Chunk> page = chunks.subList(start, Math.min(start + 500, chunks.size()));
+                repository.batchInsert(
+                        page.stream().map(chunk -> new Document(chunk.id(), chunk.text(),
+                                Map.of("source", chunk.documentId()))).toList(),
+                        page.stream().map(chunk -> model.vector(chunk.text())).toList());
+            }
+            jdbcTemplate.execute("CREATE INDEX vector_store_shared_halfvec_idx ON vector_store " +
+                    repository.hnswIndexMethod() + " WHERE (metadata->>'user_id') IS NULL");
+            jdbcTemplate.execute("CREATE INDEX vector_store_content_fts_idx " +
+                    "ON vector_store USING GIN (to_tsvector('english', content))");
+            jdbcTemplate.execute("ANALYZE vector_store");
+
+            return List.of(
+                    evaluate("pgvector hnsw", corpus, k,
+                            query -> repository.similaritySearch(null, model.vector(query.text()), k, true, 0)),
+                    evaluate("pgvector hnsw ef=" + efSearch, corpus, k,
+                            query -> repository.similaritySearch(null, model.vector(query.text()), k, true, efSearch)),
+                    evaluate("pgvector exact scan", corpus, k,
+                            query -> repository.similaritySearch(null, model.vector(query.text()), k, false, 0)),
+                    evaluate("postgres full-text", corpus, k,
+                            query -> repository.fullTextSearch(null, query.text(), k)));
+        }
+    }
+
+    private static RetrievalMetrics evaluate(String name, SyntheticCorpus corpus, int k,
+                                             Function<SyntheticCorpus.Query, List<Document>> search) {
+        RetrievalMetrics metrics = new RetrievalMetrics(name, k);
+        for (SyntheticCorpus.Query query : corpus.queries()) {
+            long start = System.nanoTime();
+            List<String> ids = search.apply(query).stream().map(Document::getId).toList();
+            metrics.record(ids, query.relevantChunkIds(), System.nanoTime() - start);
+        }
+        return metrics;
+    }
+
+    private static List<Integer> nodes(List<HnswIndex.Result> results) {
+        return results.stream().map(HnswIndex.Result::node).toList();
+    }
+
+    private static List<String> toIds(List<Integer> nodes, List<String> ids) {
+        return nodes.stream().map(ids::get).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.aibusiness.rag.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Accumulates recall@k, MRR and latency of one retrieval configuration over a query set.
+ */
+final class RetrievalMetrics {
+
+    private final String name;
+    private final int k;
+    private final List<Long> latenciesNanos = new ArrayList<>();
+    private double recallSum;
+    private double reciprocalRankSum;
+
+    RetrievalMetrics(String name, int k) {
+        this.name = name;
+        this.k = k;
+    }
+
+    /**
+     * Records one query: the retrieved chunk ids best first and the relevant ones.
+     */
+    void record(List<String> rankedIds, Set<String> relevantIds, long latencyNanos) {
+        List<String> top = rankedIds.subList(0, Math.min(k, rankedIds.size()));
+        recallSum += (double) top.stream().filter(relevantIds::contains).count() / relevantIds.size();
+        for (int rank = 0; rank < rankedIds.size(); rank++) {
+            if (relevantIds.contains(rankedIds.get(rank))) {
+                reciprocalRankSum += 1.0 / (rank + 1);
+                break;
+            }
+        }
+        latenciesNanos.add(latencyNanos);
+    }
+
+    static String header(int k) {
+        return String.format("%-28s %10s %8s %10s %10s", "configuration", "recall@" + k, "mrr", "p50 (ms)", "p95 (ms)");
+    }
+
+    @Override
+    public String toString() {
+        int queries = latenciesNanos.size();
+        List<Long> sorted = new ArrayList<>(latenciesNanos);
+        Collections.sort(sorted);
+        return String.format("%-28s %10.4f %8.4f %10.3f %10.3f", name,
+                queries > 0 ? recallSum / queries : 0, queries > 0 ? reciprocalRankSum / queries : 0,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.95) / 1e6);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(quantile * sorted.size()) - 1));
+    }
+}
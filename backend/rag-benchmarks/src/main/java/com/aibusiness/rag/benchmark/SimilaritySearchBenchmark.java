@@ -0,0 +1,87 @@
+package com.aibusiness.rag.benchmark;
+
+import com.aibusiness.rag.service.FloatVectorArena;
+import com.aibusiness.rag.service.HnswIndex;
+import com.aibusiness.rag.service.Int8VectorArena;
+import com.aibusiness.rag.service.ScalarQuantizer;
+import com.aibusiness.rag.service.VectorArena;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the in-memory index: HNSW over full-precision and int8 vectors, and
+ * the exact scan they approximate. Recall of the same configurations is reported by
+ * {@link RetrievalEvaluator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SimilaritySearchBenchmark {
+
+    @Param({"10000", "50000"})
+    public int corpusSize;
+
+    @Param({"float", "int8", "exact"})
+    public String index;
+
+    @Param({"64"})
+    public int efSearch;
+
+    private static final int DIMENSIONS = 384;
+    private static final int K = 10;
+
+    private VectorArena arena;
+    private HnswIndex hnsw;
+    private float[][] queries;
+    private int size;
+    private int nextQuery;
+
+    @Setup
+    public void setUp() {
+        // Documents have 3-6 paragraphs, one chunk each
+        SyntheticCorpus corpus = SyntheticCorpus.generate(corpusSize / 4, 1000, 42);
+        HashingEmbeddingModel model = new HashingEmbeddingModel(DIMENSIONS);
+        List<float[]> vectors = corpus.chunks().stream()
+                .limit(corpusSize)
+                .map(chunk -> model.vector(chunk.text()))
+                .toList();
+        size = vectors.size();
+        queries = corpus.queries().stream().map(query -> model.vector(query.text())).toArray(float[][]::new);
+
+        arena = "int8".equals(index)
+                ? new Int8VectorArena(ScalarQuantizer.fit(vectors.subList(0, Math.min(10000, vectors.size()))))
+                : new FloatVectorArena(DIMENSIONS);
+        if ("exact".equals(index)) {
+            for (int node = 0; node < vectors.size(); node++) {
+                arena.set(node, vectors.get(node));
+            }
+        } else {
+            hnsw = new HnswIndex(arena, DIMENSIONS, 16, 200);
+            vectors.forEach(hnsw::add);
+        }
+    }
+
+    @Benchmark
+    public Object search() {
+        float[] query = queries[nextQuery++ % queries.length];
+        if (hnsw != null) {
+            return hnsw.search(query, K, efSearch);
+        }
+        return ExactSearch.topK(arena.scorer(query), size, K);
+    }
+}
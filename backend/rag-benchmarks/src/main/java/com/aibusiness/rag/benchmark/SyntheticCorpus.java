@@ -0,0 +1,212 @@
+package com.aibusiness.rag.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Seeded generator of a document corpus and a query set with known answers. Documents
+ * belong to topics; every paragraph carries a few key terms of its own, and some key
+ * terms leak into a neighbouring paragraph as distractors. A query is built from key
+ * terms of one paragraph plus topic and filler words, and that paragraph is its only
+ * relevant chunk. The same seed always yields the same corpus.
+ */
+public final class SyntheticCorpus {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "sa", "ti", "vo", "ze", "pa", "qui", "dor", "len", "mar", "tos", "bel",
+            "cra", "fin", "gal", "hum", "jor", "kel", "lum", "nor", "pix", "ral", "sen", "tur", "vex", "wil"};
+
+    /**
+     * @param id         chunk id, a UUID as vector_store expects
+     * @param documentId id of the document the chunk belongs to
+     */
+    public record Chunk(String id, String documentId, String text) {}
+
+    public record Query(String text, Set<String> relevantChunkIds) {}
+
+    public record CorpusDocument(String id, String title, List<String> paragraphs, List<String> listItems,
+                                 List<List<String>> tableRows) {
+
+        public String text() {
+            StringBuilder text = new StringBuilder(title).append("\n\n");
+            paragraphs.forEach(paragraph -> text.append(paragraph).append("\n\n"));
+            listItems.forEach(item -> text.append("- ").append(item).append('\n'));
+            tableRows.forEach(row -> text.append(String.join(" | ", row)).append('\n'));
+            return text.toString();
+        }
+
+        /**
+         * The document as the XHTML Tika produces for it, for the chunkers.
+         */
+        public String xhtml() {
+            StringBuilder html = new StringBuilder("<html xmlns=\"http://www.w3.org/1999/xhtml\"><body>");
+            html.append("<h1>").append(title).append("</h1>");
+            for (int i = 0; i < paragraphs.size(); i++) {
+                if (i > 0 && i % 2 == 0) {
+                    html.append("<h2>Part ").append(i / 2).append("</h2>");
+                }
+                html.append("<p>").append(paragraphs.get(i)).append("</p>");
+            }
+            html.append("<ul>");
+            listItems.forEach(item -> html.append("<li>").append(item).append("</li>"));
+            html.append("</ul>");
+            if (!tableRows.isEmpty()) {
+                html.append("<table>");
+                for (List<String> row : tableRows) {
+                    html.append("<tr>");
+                    row.forEach(cell -> html.append("<td>").append(cell).append("</td>"));
+                    html.append("</tr>");
+                }
+                html.append("</table>");
+            }
+            return html.append("</body></html>").toString();
+        }
+    }
+
+    private final List<CorpusDocument> documents;
+    private final List<Chunk> chunks;
+    private final List<Query> queries;
+
+    private SyntheticCorpus(List<CorpusDocument> documents, List<Chunk> chunks, List<Query> queries) {
+        this.documents = documents;
+        this.chunks = chunks;
+        this.queries = queries;
+    }
+
+    public static SyntheticCorpus generate(int documentCount, int queryCount, long seed) {
+        Random random = new Random(seed);
+        Set<String> used = new HashSet<>();
+        List<String> filler = words(random, used, 300, 1, 2);
+        int topicCount = Math.max(1, documentCount / 20);
+        List<List<String>> topics = new ArrayList<>();
+        for (int t = 0; t < topicCount; t++) {
+            topics.add(words(random, used, 40, 2, 3));
+        }
+
+        List<CorpusDocument> documents = new ArrayList<>(documentCount);
+        List<Chunk> chunks = new ArrayList<>();
+        List<List<String>> chunkKeyTerms = new ArrayList<>();
+        List<Integer> chunkTopics = new ArrayList<>();
+        for (int d = 0; d < documentCount; d++) {
+            int topicIndex = d % topicCount;
+            List<String> topic = topics.get(topicIndex);
+            String documentId = uuid("doc-" + d);
+            String title = capitalize(pick(random, topic)) + " " + pick(random, topic) + " guide";
+
+            List<String> paragraphs = new ArrayList<>();
+            List<String> previousKeyTerms = List.of();
+            int paragraphCount = 3 + random.nextInt(4);
+            for (int p = 0; p < paragraphCount; p++) {
+                List<String> keyTerms = words(random, used, 3, 3, 3);
+                List<String> vocabulary = new ArrayList<>(keyTerms);
+                if (!previousKeyTerms.isEmpty() && random.nextDouble() < 0.3) {
+                    vocabulary.add(pick(random, previousKeyTerms)); // Distractor for the previous paragraph's queries
+                }
+                StringBuilder paragraph = new StringBuilder();
+                int sentences = 3 + random.nextInt(3);
+                for (int s = 0; s < sentences; s++) {
+                    paragraph.append(sentence(random, filler, topic, vocabulary, 8 + random.nextInt(9))).append(' ');
+                }
+                paragraphs.add(paragraph.toString().strip());
+                chunks.add(new Chunk(uuid("doc-" + d + "-p" + p), documentId, paragraphs.get(p)));
+                chunkKeyTerms.add(keyTerms);
+                chunkTopics.add(topicIndex);
+                previousKeyTerms = keyTerms;
+            }
+
+            List<String> listItems = new ArrayList<>();
+            for (int i = 0, items = 3 + random.nextInt(3); i < items; i++) {
+                listItems.add(sentence(random, filler, topic, List.of(), 4 + random.nextInt(5)));
+            }
+            List<List<String>> tableRows = new ArrayList<>();
+            if (random.nextBoolean()) {
+                tableRows.add(List.of("Name", "Value", "Notes"));
+                for (int r = 0, rows = 4 + random.nextInt(7); r < rows; r++) {
+                    tableRows.add(List.of(pick(random, topic), String.valueOf(random.nextInt(1000)),
+                            sentence(random, filler, topic, List.of(), 3 + random.nextInt(4))));
+                }
+            }
+            documents.add(new CorpusDocument(documentId, title, paragraphs, listItems, tableRows));
+        }
+
+        List<Query> queries = new ArrayList<>(queryCount);
+        for (int q = 0; q < queryCount; q++) {
+            int target = random.nextInt(chunks.size());
+            List<String> keyTerms = new ArrayList<>(chunkKeyTerms.get(target));
+            Collections.shuffle(keyTerms, random);
+            List<String> words = new ArrayList<>(keyTerms.subList(0, 2 + random.nextInt(2)));
+            words.add(pick(random, topics.get(chunkTopics.get(target))));
+            for (int f = 0, fillers = 1 + random.nextInt(2); f < fillers; f++) {
+                words.add(pick(random, filler));
+            }
+            Collections.shuffle(words, random);
+            queries.add(new Query(String.join(" ", words) + "?", Set.of(chunks.get(target).id())));
+        }
+        return new SyntheticCorpus(List.copyOf(documents), List.copyOf(chunks), List.copyOf(queries));
+    }
+
+    public List<CorpusDocument> documents() {
+        return documents;
+    }
+
+    /**
+     * One chunk per paragraph, the unit queries are judged on.
+     */
+    public List<Chunk> chunks() {
+        return chunks;
+    }
+
+    public List<Query> queries() {
+        return queries;
+    }
+
+    private static String sentence(Random random, List<String> filler, List<String> topic, List<String> keyTerms, int length) {
+        List<String> words = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            double roll = random.nextDouble();
+            if (roll < 0.15 && !keyTerms.isEmpty()) {
+                words.add(pick(random, keyTerms));
+            } else if (roll < 0.40) {
+                words.add(pick(random, topic));
+            } else {
+                words.add(pick(random, filler));
+            }
+        }
+        return capitalize(String.join(" ", words)) + ".";
+    }
+
+    private static List<String> words(Random random, Set<String> used, int count, int minSyllables, int maxSyllables) {
+        List<String> words = new ArrayList<>(count);
+        while (words.size() < count) {
+            StringBuilder word = new StringBuilder();
+            int syllables = minSyllables + random.nextInt(maxSyllables - minSyllables + 1);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            // Rare words get a numeric suffix once the syllable space runs out
+            String candidate = used.contains(word.toString()) ? word.toString() + used.size() : word.toString();
+            if (used.add(candidate)) {
+                words.add(candidate);
+            }
+        }
+        return words;
+    }
+
+    private static String pick(Random random, List<String> words) {
+        return words.get(random.nextInt(words.size()));
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    private static String uuid(String key) {
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
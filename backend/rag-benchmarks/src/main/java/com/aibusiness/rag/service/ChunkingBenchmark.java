@@ -0,0 +1,85 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.benchmark.SyntheticCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunking throughput of both strategies on the XHTML Tika would hand them, parsed with
+ * the JDK SAX parser so Tika's own cost is left out. Lives in the service package because
+ * the content handlers are package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkingBenchmark {
+
+    @Param({"token", "structure"})
+    public String strategy;
+
+    private List<byte[]> documents;
+    private SAXParser parser;
+
+    @Setup
+    public void setUp() throws Exception {
+        documents = SyntheticCorpus.generate(50, 0, 42).documents().stream()
+                .map(document -> document.xhtml().getBytes(StandardCharsets.UTF_8))
+                .toList();
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        parser = factory.newSAXParser();
+    }
+
+    /**
+     * Returns the number of chunks, which for equal corpora is itself worth comparing.
+     */
+    @Benchmark
+    public int chunkCorpus() throws Exception {
+        List<Document> chunks = new ArrayList<>();
+        for (byte[] document : documents) {
+            Map<String, Object> metadata = Map.of("source", "benchmark");
+            DefaultHandler handler;
+            Runnable flush;
+            if ("structure".equals(strategy)) {
+                StructureChunkingContentHandler structured = new StructureChunkingContentHandler(
+                        new StructureChunkingContentHandler.Settings(256, 32, 1024, 64), metadata, chunks::addAll);
+                handler = structured;
+                flush = structured::flush;
+            } else {
+                TokenTextSplitter splitter = new TokenTextSplitter();
+                ChunkingContentHandler segmenting = new ChunkingContentHandler(65536,
+                        segment -> chunks.addAll(splitter.apply(List.of(new Document(segment, metadata)))));
+                handler = segmenting;
+                flush = segmenting::flush;
+            }
+            parser.reset();
+            parser.parse(new ByteArrayInputStream(document), handler);
+            flush.run();
+        }
+        return chunks.size();
+    }
+}
@@ -0,0 +1,64 @@
+package com.aibusiness.rag.config;
+
+import com.aibusiness.rag.repository.EmbeddingCacheRepository;
+import com.aibusiness.rag.service.CachingEmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class EmbeddingCacheConfig {
+
+    /**
+     * Wraps the auto-configured EmbeddingModel in a {@link CachingEmbeddingModel}, so the
+     * pgvector store, the ingestion pipeline and the query path all share one cache.
+     * Done as a post-processor because the starter owns the model bean definition.
+     */
+    @Bean
+    public static BeanPostProcessor cachingEmbeddingModelPostProcessor(Environment environment,
+                                                                        ObjectProvider<EmbeddingCacheRepository> cacheRepository,
+                                                                        ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof EmbeddingModel model) || bean instanceof CachingEmbeddingModel
+                        || !environment.getProperty("rag.embedding-cache.enabled", Boolean.class, true)) {
+                    return bean;
+                }
+                boolean persistent = environment.getProperty("rag.embedding-cache.persistent", Boolean.class, false);
+                return new CachingEmbeddingModel(
+                        model,
+                        environment.getProperty("spring.ai.google.gemini.embedding.options.model", "default"),
+                        environment.getProperty("rag.embedding-cache.max-entries", Long.class, 100_000L),
+                        persistent ? cacheRepository.getObject() : null,
+                        persistent ? persistExecutor() : null,
+                        meterRegistry.getObject());
+            }
+        };
+    }
+
+    /**
+     * Writes new embeddings to the persistent tier. A single daemon thread, created here
+     * rather than as a bean because post-processors are instantiated before other beans;
+     * writes beyond the queue are dropped and the texts are simply embedded again later.
+     */
+    private static ThreadPoolExecutor persistExecutor() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("rag-embed-cache-");
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(
+                1, 1,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,60 @@
+package com.aibusiness.rag.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class IngestionConfig {
+
+    /**
+     * Bounded worker pool that embeds and writes ingestion micro-batches.
+     * When the queue is full the submitting thread runs the batch itself, which
+     * throttles producers instead of letting pending work pile up in memory.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService embeddingExecutor(@Value("${rag.ingest.workers:0}") int workers,
+                                             @Value("${rag.ingest.queue-capacity:64}") int queueCapacity) {
+        int poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("rag-embed-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Runs queued ingestion jobs. Kept small and separate from the request threads so
+     * large backfills cannot starve /query traffic.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ingestionJobExecutor(@Value("${rag.jobs.workers:2}") int workers) {
+        return Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("rag-ingest-job-"));
+    }
+
+    /**
+     * Runs scheduled URL refreshes; its size is the number of pages fetched and
+     * re-embedded at once.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService crawlExecutor(@Value("${rag.crawl.concurrency:4}") int concurrency) {
+        return Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("rag-crawl-"));
+    }
+
+    /**
+     * Runs vector index maintenance (VACUUM, REINDEX, table rebuilds), one operation at a
+     * time, off the scheduler and request threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService maintenanceExecutor() {
+        return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("rag-maintenance-"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.aibusiness.rag.config;
+
+import com.aibusiness.rag.service.LexicalReranker;
+import com.aibusiness.rag.service.LlmReranker;
+import com.aibusiness.rag.service.Reranker;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class RetrievalConfig {
+
+    /**
+     * Runs the secondary legs of query-time retrieval next to the request thread.
+     * Falls back to running on the caller when saturated rather than queueing unboundedly.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService retrievalExecutor(@Value("${rag.retrieval.workers:16}") int workers) {
+        return new ThreadPoolExecutor(
+                workers, workers,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workers * 4),
+                new CustomizableThreadFactory("rag-retrieval-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Runs the queries of a batch request concurrently. Kept apart from the retrieval
+     * executor because each batch task waits on retrieval legs submitted there.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchQueryExecutor(@Value("${rag.retrieval.batch-workers:8}") int workers) {
+        return new ThreadPoolExecutor(
+                workers, workers,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workers * 8),
+                new CustomizableThreadFactory("rag-batch-query-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Relevance scorer for retrieved chunks: "lexical" (default, local and deterministic)
+     * or "llm" (graded by the chat model, lexical on failure).
+     */
+    @Bean
+    public Reranker reranker(@Value("${rag.rerank.scorer:lexical}") String scorer,
+                             @Value("${rag.rerank.vector-weight:0.5}") double vectorWeight,
+                             ChatClient chatClient) {
+        Reranker lexical = new LexicalReranker(vectorWeight);
+        return "llm".equalsIgnoreCase(scorer) ? new LlmReranker(chatClient, lexical) : lexical;
+    }
+}
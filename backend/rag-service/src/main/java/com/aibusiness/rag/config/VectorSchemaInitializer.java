@@ -0,0 +1,113 @@
+package com.aibusiness.rag.config;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Adds the secondary indexes our queries rely on to the "vector_store" table that
+ * Spring AI's PgVectorStore creates, plus the service's own side tables, including those
+ * of the JPA entities: Hibernate does not touch the schema (ddl-auto: none), so every
+ * table and constraint of the service is defined here. The HNSW indexes are built
+ * concurrently, under the maintenance lock, by {@link com.aibusiness.rag.service.PartitionIndexManager}.
+ * Runs once the store has initialised its schema.
+ */
+@Component
+@RequiredArgsConstructor
+public class VectorSchemaInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorSchemaInitializer.class);
+
+    private static final List<String> DDL = List.of(
+            // Ingestion jobs (IngestionJob); the ALTERs bring tables created by earlier versions up to date
+            "CREATE TABLE IF NOT EXISTS ingestion_jobs (" +
+                    "id UUID PRIMARY KEY, source_type VARCHAR(255) NOT NULL, source TEXT NOT NULL, user_id BIGINT, " +
+                    "max_depth INT, max_pages INT, filename TEXT, status VARCHAR(255) NOT NULL, owner VARCHAR(255), " +
+                    "heartbeat_at TIMESTAMPTZ, chunks_processed INT NOT NULL DEFAULT 0, error TEXT, " +
+                    "created_at TIMESTAMPTZ, updated_at TIMESTAMPTZ)",
+            "ALTER TABLE ingestion_jobs ADD COLUMN IF NOT EXISTS user_id BIGINT",
+            "ALTER TABLE ingestion_jobs ADD COLUMN IF NOT EXISTS max_depth INT",
+            "ALTER TABLE ingestion_jobs ADD COLUMN IF NOT EXISTS max_pages INT",
+            "ALTER TABLE ingestion_jobs ADD COLUMN IF NOT EXISTS filename TEXT",
+            "ALTER TABLE ingestion_jobs ADD COLUMN IF NOT EXISTS owner VARCHAR(255)",
+            "ALTER TABLE ingestion_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMPTZ",
+            "CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_status_created ON ingestion_jobs (status, created_at)",
+            // URL crawl registry (CrawledUrl)
+            "CREATE TABLE IF NOT EXISTS crawled_urls (" +
+                    "id UUID PRIMARY KEY, url TEXT NOT NULL, user_id BIGINT, etag TEXT, last_modified VARCHAR(255), " +
+                    "content_hash VARCHAR(255), last_status VARCHAR(255), last_error TEXT, " +
+                    "last_checked_at TIMESTAMPTZ, last_changed_at TIMESTAMPTZ, created_at TIMESTAMPTZ, updated_at TIMESTAMPTZ)",
+            "CREATE INDEX IF NOT EXISTS idx_crawled_urls_last_checked ON crawled_urls (last_checked_at)",
+            // Per-source lookups: deduplication, refresh and deletion by source
+            "CREATE INDEX IF NOT EXISTS vector_store_source_hash_idx " +
+                    "ON vector_store ((metadata->>'source'), (metadata->>'content_hash'))",
+            // Partition lookups; small user partitions are ranked exactly after this lookup
+            "CREATE INDEX IF NOT EXISTS vector_store_user_idx ON vector_store ((metadata->>'user_id'))",
+            // Source listing and deletion within a partition
+            "CREATE INDEX IF NOT EXISTS vector_store_user_source_idx " +
+                    "ON vector_store ((metadata->>'user_id'), (metadata->>'source'))",
+            // Lexical leg of hybrid retrieval
+            "CREATE INDEX IF NOT EXISTS vector_store_content_fts_idx " +
+                    "ON vector_store USING GIN (to_tsvector('english', content))",
+            // Persistent tier of the embedding cache
+            "CREATE TABLE IF NOT EXISTS rag_embedding_cache (" +
+                    "cache_key TEXT PRIMARY KEY, model TEXT NOT NULL, embedding BYTEA NOT NULL, " +
+                    "created_at TIMESTAMPTZ NOT NULL DEFAULT now())",
+            // int8 scalar quantization: per-chunk codes and the fitted quantizer
+            "ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS embedding_i8 BYTEA",
+            "CREATE TABLE IF NOT EXISTS rag_quantization_params (" +
+                    "id INT PRIMARY KEY, dimensions INT NOT NULL, offsets REAL[] NOT NULL, scales REAL[] NOT NULL, " +
+                    "fitted_at TIMESTAMPTZ NOT NULL)",
+            // Parent sections of structure-chunked sources, referenced by metadata->>'parent_id'
+            "CREATE TABLE IF NOT EXISTS rag_parent_chunks (" +
+                    "id UUID PRIMARY KEY, user_id BIGINT, source TEXT NOT NULL, content TEXT NOT NULL, " +
+                    "created_at TIMESTAMPTZ NOT NULL DEFAULT now())",
+            "CREATE INDEX IF NOT EXISTS rag_parent_chunks_source_idx ON rag_parent_chunks (source, user_id)",
+            // Ingest versions: pruning a source only removes rows written by ingests that started earlier
+            "CREATE SEQUENCE IF NOT EXISTS rag_ingest_version_seq",
+            "ALTER TABLE rag_parent_chunks ADD COLUMN IF NOT EXISTS ingest_version BIGINT",
+            // Expiry of sources; the sweeper deletes a source once expires_at has passed
+            "CREATE TABLE IF NOT EXISTS rag_source_ttl (" +
+                    "user_id BIGINT, source TEXT NOT NULL, expires_at TIMESTAMPTZ NOT NULL)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS rag_source_ttl_source_idx ON rag_source_ttl (source, coalesce(user_id, -1))",
+            "CREATE INDEX IF NOT EXISTS rag_source_ttl_expires_idx ON rag_source_ttl (expires_at)",
+            // One crawl registry entry per URL and partition, including the shared corpus (null user_id),
+            // which the former (url, user_id) constraint let through twice; older duplicates are dropped first
+            "ALTER TABLE crawled_urls DROP CONSTRAINT IF EXISTS uk_crawled_urls_url_user",
+            "DELETE FROM crawled_urls a USING crawled_urls b WHERE a.url = b.url AND a.user_id IS NULL AND b.user_id IS NULL " +
+                    "AND (coalesce(a.updated_at, a.created_at), a.id) < (coalesce(b.updated_at, b.created_at), b.id)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS crawled_urls_url_user_idx ON crawled_urls (url, coalesce(user_id, -1))",
+            // Uploaded files of FILE ingestion jobs, readable by whichever instance claims the job
+            "CREATE TABLE IF NOT EXISTS rag_ingest_uploads (" +
+                    "job_id UUID NOT NULL REFERENCES ingestion_jobs (id) ON DELETE CASCADE, part INT NOT NULL, " +
+                    "data BYTEA NOT NULL, PRIMARY KEY (job_id, part))",
+            // Chunk and source changes of every instance, read by the others (ChangeFeedService)
+            "CREATE TABLE IF NOT EXISTS rag_change_feed (" +
+                    "seq BIGSERIAL PRIMARY KEY, origin TEXT NOT NULL, kind TEXT NOT NULL, user_id BIGINT, source TEXT, " +
+                    "chunk_ids TEXT[], created_at TIMESTAMPTZ NOT NULL DEFAULT now())",
+            "CREATE INDEX IF NOT EXISTS rag_change_feed_created_idx ON rag_change_feed (created_at)",
+            // Index size per row at the last (re)build, the reference for bloat tracking
+            "CREATE TABLE IF NOT EXISTS rag_index_maintenance (" +
+                    "index_name TEXT PRIMARY KEY, bytes_per_row_baseline DOUBLE PRECISION NOT NULL, " +
+                    "baseline_at TIMESTAMPTZ NOT NULL)"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        for (String statement : DDL) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (Exception e) {
+                log.warn("Could not apply vector_store schema statement [{}]: {}", statement, e.getMessage());
+            }
+        }
+    }
+}
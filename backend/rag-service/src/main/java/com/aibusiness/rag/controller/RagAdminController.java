@@ -0,0 +1,73 @@
+package com.aibusiness.rag.controller;
+
+import com.aibusiness.rag.dto.IndexMaintenanceResponse;
+import com.aibusiness.rag.dto.QuantizationRecallResponse;
+import com.aibusiness.rag.dto.QuantizationStatusResponse;
+import com.aibusiness.rag.service.IndexMaintenanceService;
+import com.aibusiness.rag.service.IndexTuning;
+import com.aibusiness.rag.service.QuantizationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/rag/admin")
+@RequiredArgsConstructor
+public class RagAdminController {
+    private final QuantizationService quantizationService;
+    private final IndexMaintenanceService indexMaintenanceService;
+    private final IndexTuning indexTuning;
+
+    // --- Embedding quantization ---
+    @PostMapping("/quantization/backfill")
+    public ResponseEntity<QuantizationStatusResponse> backfillQuantization(@RequestParam(defaultValue = "false") boolean refit) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(quantizationService.startBackfill(refit));
+    }
+
+    @GetMapping("/quantization")
+    public ResponseEntity<QuantizationStatusResponse> quantizationStatus() {
+        return ResponseEntity.ok(quantizationService.status());
+    }
+
+    @GetMapping("/quantization/recall")
+    public ResponseEntity<QuantizationRecallResponse> quantizationRecall(@RequestParam(defaultValue = "50") int queries,
+                                                                         @RequestParam(defaultValue = "10") int k) {
+        return ResponseEntity.ok(quantizationService.evaluateRecall(queries, k));
+    }
+
+    // --- Vector index maintenance ---
+    @GetMapping("/index")
+    public ResponseEntity<IndexMaintenanceResponse> indexStatus() {
+        return ResponseEntity.ok(indexMaintenanceService.report());
+    }
+
+    @PostMapping("/index/vacuum")
+    public ResponseEntity<IndexMaintenanceResponse> vacuumIndex() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(indexMaintenanceService.startVacuum());
+    }
+
+    @PostMapping("/index/reindex")
+    public ResponseEntity<IndexMaintenanceResponse> reindex(@RequestParam String name) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(indexMaintenanceService.startReindex(name));
+    }
+
+    @PostMapping("/index/rebuild")
+    public ResponseEntity<IndexMaintenanceResponse> rebuildIndex(@RequestParam(defaultValue = "16") int m,
+                                                                 @RequestParam(name = "ef_construction", defaultValue = "64") int efConstruction) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(indexMaintenanceService.startRebuild(m, efConstruction));
+    }
+
+    @GetMapping("/index/ef-search")
+    public ResponseEntity<Map<String, Integer>> efSearch() {
+        return ResponseEntity.ok(Map.of("ef_search", indexTuning.getEfSearch()));
+    }
+
+    @PutMapping("/index/ef-search")
+    public ResponseEntity<Map<String, Integer>> setEfSearch(@RequestParam int value) {
+        indexTuning.setEfSearch(value);
+        return ResponseEntity.ok(Map.of("ef_search", indexTuning.getEfSearch()));
+    }
+}
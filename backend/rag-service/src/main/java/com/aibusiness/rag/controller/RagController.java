@@ -1,35 +1,119 @@
 package com.aibusiness.rag.controller;
 
+import com.aibusiness.rag.dto.BatchQueryRequest;
+import com.aibusiness.rag.dto.BatchQueryResponse;
+import com.aibusiness.rag.dto.IngestJobResponse;
 import com.aibusiness.rag.dto.IngestResponse;
+import com.aibusiness.rag.dto.IngestSiteRequest;
 import com.aibusiness.rag.dto.IngestUrlRequest;
 import com.aibusiness.rag.dto.QueryRequest;
 import com.aibusiness.rag.dto.QueryResponse;
+import com.aibusiness.rag.dto.SourceDeleteResponse;
+import com.aibusiness.rag.dto.SourceExpiryRequest;
+import com.aibusiness.rag.dto.SourceResponse;
+import com.aibusiness.rag.service.IngestionJobService;
 import com.aibusiness.rag.service.RagPipelineService;
+import com.aibusiness.rag.service.SourceService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/rag")
 @RequiredArgsConstructor
 public class RagController {
     private final RagPipelineService ragPipelineService;
+    private final IngestionJobService ingestionJobService;
+    private final SourceService sourceService;
 
     @PostMapping(value = "/ingest/file", consumes = "multipart/form-data")
-    public ResponseEntity<IngestResponse> ingestFile(@RequestParam("file") MultipartFile file) throws IOException {
-        return ResponseEntity.ok(ragPipelineService.ingestFile(file));
+    public ResponseEntity<IngestResponse> ingestFile(@RequestParam("file") MultipartFile file,
+                                                     @RequestParam(name = "user_id", required = false) Long userId,
+                                                     @RequestParam(name = "source_id", required = false) String sourceId) throws IOException {
+        return ResponseEntity.ok(ragPipelineService.ingestFile(file, userId, sourceId));
     }
 
     @PostMapping("/ingest/url")
     public ResponseEntity<IngestResponse> ingestUrl(@RequestBody IngestUrlRequest request) {
-        return ResponseEntity.ok(ragPipelineService.ingestUrl(request.getUrl()));
+        return ResponseEntity.ok(ragPipelineService.ingestUrl(request.getUrl(), request.getUserId()));
+    }
+
+    // --- Asynchronous ingestion jobs ---
+    @PostMapping(value = "/ingest/jobs/file", consumes = "multipart/form-data")
+    public ResponseEntity<IngestJobResponse> submitFileJob(@RequestParam("file") MultipartFile file,
+                                                           @RequestParam(name = "user_id", required = false) Long userId,
+                                                           @RequestParam(name = "source_id", required = false) String sourceId) throws IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ingestionJobService.submitFile(file, userId, sourceId));
+    }
+
+    @PostMapping("/ingest/jobs/url")
+    public ResponseEntity<IngestJobResponse> submitUrlJob(@RequestBody IngestUrlRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ingestionJobService.submitUrl(request.getUrl(), request.getUserId()));
+    }
+
+    @PostMapping("/ingest/jobs/site")
+    public ResponseEntity<IngestJobResponse> submitSiteJob(@RequestBody IngestSiteRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ingestionJobService.submitSite(request));
+    }
+
+    @GetMapping("/ingest/jobs/{jobId}")
+    public ResponseEntity<IngestJobResponse> getJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(ingestionJobService.getJob(jobId));
+    }
+
+    @GetMapping(value = "/ingest/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJobProgress(@PathVariable UUID jobId) {
+        return ingestionJobService.subscribe(jobId);
+    }
+
+    // --- Source management ---
+    @GetMapping("/sources")
+    public ResponseEntity<List<SourceResponse>> listSources(@RequestParam(name = "user_id", required = false) Long userId,
+                                                            @RequestParam(required = false) String after,
+                                                            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(sourceService.listSources(userId, after, limit));
+    }
+
+    @DeleteMapping("/sources")
+    public ResponseEntity<SourceDeleteResponse> deleteSource(@RequestParam String source,
+                                                             @RequestParam(name = "user_id", required = false) Long userId) {
+        return ResponseEntity.ok(sourceService.deleteSource(userId, source));
+    }
+
+    @PutMapping("/sources/expiry")
+    public ResponseEntity<SourceResponse> setSourceExpiry(@RequestBody SourceExpiryRequest request) {
+        Duration ttl = request.getTtlSeconds() != null ? Duration.ofSeconds(request.getTtlSeconds()) : null;
+        return ResponseEntity.ok(sourceService.setExpiry(request.getUserId(), request.getSource(), ttl));
     }
 
     @PostMapping("/query")
     public ResponseEntity<QueryResponse> query(@RequestBody QueryRequest request) {
-        return ResponseEntity.ok(ragPipelineService.query(request.getQuery()));
+        return ResponseEntity.ok(ragPipelineService.query(request.getQuery(), request.getUserId(), request.getEfSearch()));
+    }
+
+    @PostMapping("/retrieve")
+    public ResponseEntity<QueryResponse> retrieve(@RequestBody QueryRequest request) {
+        return ResponseEntity.ok(ragPipelineService.retrieve(request.getQuery(), request.getUserId(), request.getEfSearch()));
+    }
+
+    @PostMapping("/query/batch")
+    public ResponseEntity<BatchQueryResponse> queryBatch(@RequestBody BatchQueryRequest request) {
+        return ResponseEntity.ok(ragPipelineService.queryBatch(request));
+    }
+
+    @PostMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> queryStream(@RequestBody QueryRequest request) {
+        return ragPipelineService.queryStream(request.getQuery(), request.getUserId(), request.getEfSearch());
     }
 }
 
@@ -0,0 +1,14 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BatchQueryRequest {
+    private List<String> queries;
+    @JsonProperty("user_id") private Long userId; // Searches this user's partition; null searches the shared corpus
+    @JsonProperty("ef_search") private Integer efSearch; // HNSW search breadth for every query of the batch
+    @JsonProperty("retrieval_only") private boolean retrievalOnly; // Return the re-ranked chunks as retrieved, no context assembly
+    @JsonProperty("skip_generation") private boolean skipGeneration; // Assemble the context but don't call the chat model
+}
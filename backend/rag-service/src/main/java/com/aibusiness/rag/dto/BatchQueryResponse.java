@@ -0,0 +1,26 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchQueryResponse {
+    private List<Result> results; // In request order
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Result {
+        private String query;
+        private String answer; // null in retrieval-only and skip-generation mode
+        private List<String> sources;
+        private List<String> context;
+        @JsonProperty("tokens_saved") private int tokensSaved;
+        private String error; // Set instead of the other fields when this query failed
+    }
+}
@@ -0,0 +1,42 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexMaintenanceResponse {
+    @JsonProperty("live_tuples") private long liveTuples;
+    @JsonProperty("dead_tuples") private long deadTuples;
+    @JsonProperty("dead_tuple_ratio") private double deadTupleRatio;
+    @JsonProperty("table_bytes") private long tableBytes; // Including indexes and TOAST
+    @JsonProperty("last_vacuum") private Instant lastVacuum;
+    @JsonProperty("last_analyze") private Instant lastAnalyze;
+    @JsonProperty("ef_search") private int efSearch; // 0 when searches use the server setting
+    @JsonProperty("running_operation") private String runningOperation; // null when idle
+    @JsonProperty("last_operation") private String lastOperation;
+    @JsonProperty("last_operation_at") private Instant lastOperationAt;
+    @JsonProperty("last_error") private String lastError; // Set when the last operation failed
+    private List<Index> indexes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Index {
+        private String name;
+        private String method; // hnsw, btree, gin...
+        private boolean valid;
+        private long bytes;
+        @JsonProperty("indexed_rows") private long indexedRows;
+        @JsonProperty("bytes_per_row") private double bytesPerRow;
+        @JsonProperty("baseline_bytes_per_row") private double baselineBytesPerRow;
+        @JsonProperty("bloat_ratio") private double bloatRatio; // Growth of bytes per row since the baseline
+        private long scans;
+        private String predicate; // null for indexes over the whole table
+    }
+}
@@ -0,0 +1,29 @@
+package com.aibusiness.rag.dto;
+
+import com.aibusiness.rag.entity.IngestionJob;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestJobResponse {
+    @JsonProperty("job_id") private UUID jobId;
+    @JsonProperty("source_type") private String sourceType;
+    private String source;
+    @JsonProperty("user_id") private Long userId;
+    private String status;
+    @JsonProperty("chunks_processed") private int chunksProcessed;
+    private String error;
+    @JsonProperty("created_at") private ZonedDateTime createdAt;
+    @JsonProperty("updated_at") private ZonedDateTime updatedAt;
+
+    public static IngestJobResponse from(IngestionJob job) {
+        return new IngestJobResponse(job.getId(), job.getSourceType(), job.getSource(), job.getUserId(), job.getStatus(),
+                job.getChunksProcessed(), job.getError(), job.getCreatedAt(), job.getUpdatedAt());
+    }
+}
@@ -0,0 +1,12 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+public class IngestSiteRequest {
+    private String url; // Seed page; links are followed on its origin only
+    @JsonProperty("user_id") private Long userId;
+    @JsonProperty("max_depth") private Integer maxDepth; // Link hops from the seed, defaults to rag.crawl.site.max-depth
+    @JsonProperty("max_pages") private Integer maxPages; // Defaults to rag.crawl.site.max-pages
+}
@@ -0,0 +1,20 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantizationRecallResponse {
+    @JsonProperty("corpus_size") private int corpusSize;
+    private int queries;
+    private int k;
+    @JsonProperty("rerank_depth") private int rerankDepth;
+    @JsonProperty("recall_int8") private double recallInt8;
+    @JsonProperty("recall_int8_reranked") private double recallInt8Reranked;
+    @JsonProperty("bytes_per_vector_float") private int bytesPerVectorFloat;
+    @JsonProperty("bytes_per_vector_int8") private int bytesPerVectorInt8;
+}
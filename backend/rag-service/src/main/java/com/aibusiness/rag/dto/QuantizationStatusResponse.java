@@ -0,0 +1,16 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantizationStatusResponse {
+    @JsonProperty("backfill_running") private boolean backfillRunning;
+    @JsonProperty("backfilled_rows") private long backfilledRows;
+    @JsonProperty("quantized_rows") private long quantizedRows;
+    private int dimensions; // 0 until a quantizer has been fitted
+}
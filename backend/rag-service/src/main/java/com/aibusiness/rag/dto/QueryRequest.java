@@ -1,8 +1,11 @@
 package com.aibusiness.rag.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 @Data
 public class QueryRequest {
     private String query;
+    @JsonProperty("user_id") private Long userId; // Searches this user's partition; null searches the shared corpus
+    @JsonProperty("ef_search") private Integer efSearch; // HNSW search breadth for this query; null uses the configured default
 }
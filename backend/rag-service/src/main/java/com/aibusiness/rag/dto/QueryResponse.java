@@ -1,5 +1,6 @@
 package com.aibusiness.rag.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,4 +13,6 @@ import java.util.List;
 public class QueryResponse {
     private String answer;
     private List<String> sources;
+    private List<String> context;
+    @JsonProperty("tokens_saved") private int tokensSaved; // Context tokens removed by budgeting, de-duplication and boilerplate filtering
 }
@@ -1,5 +1,6 @@
 package com.aibusiness.rag.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,11 +12,14 @@ import java.util.List;
 @Data
 public class IngestUrlRequest {
     private String url;
+    @JsonProperty("user_id") private Long userId; // Owning user; null ingests into the shared corpus
 }
 
 @Data
 public class QueryRequest {
     private String query;
+    @JsonProperty("user_id") private Long userId; // Searches this user's partition; null searches the shared corpus
+    @JsonProperty("ef_search") private Integer efSearch; // HNSW search breadth for this query; null uses the configured default
 }
 
 // --- Response DTOs ---
@@ -36,4 +40,5 @@ public class QueryResponse {
     private String answer;
     private List<String> sources;
     private List<String> context;
+    private int tokensSaved; // Context tokens removed by budgeting, de-duplication and boilerplate filtering
 }
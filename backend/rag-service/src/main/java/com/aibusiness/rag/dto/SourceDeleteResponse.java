@@ -0,0 +1,14 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SourceDeleteResponse {
+    private String source;
+    @JsonProperty("chunks_deleted") private long chunksDeleted;
+}
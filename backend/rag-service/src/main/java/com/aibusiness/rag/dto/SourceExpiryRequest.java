@@ -0,0 +1,11 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+public class SourceExpiryRequest {
+    private String source; // File name or URL, as listed by GET /sources
+    @JsonProperty("user_id") private Long userId;
+    @JsonProperty("ttl_seconds") private Long ttlSeconds; // Expires this long from now; null never expires
+}
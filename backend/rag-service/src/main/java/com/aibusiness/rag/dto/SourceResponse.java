@@ -0,0 +1,16 @@
+package com.aibusiness.rag.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SourceResponse {
+    private String source;
+    private long chunks;
+    @JsonProperty("expires_at") private Instant expiresAt; // null when the source does not expire
+}
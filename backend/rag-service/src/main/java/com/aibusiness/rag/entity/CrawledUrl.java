@@ -0,0 +1,61 @@
+package com.aibusiness.rag.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+// Schema and indexes: VectorSchemaInitializer. One entry per URL and partition is enforced by
+// crawled_urls_url_user_idx on (url, coalesce(user_id, -1)), since a plain unique constraint treats
+// shared-corpus (null) rows as distinct
+@Table(name = "crawled_urls")
+public class CrawledUrl {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String url;
+
+    @Column(name = "user_id")
+    private Long userId; // Owning user's partition, null for the shared corpus
+
+    @Column(columnDefinition = "TEXT")
+    private String etag; // Validators from the last successful fetch, sent back as conditional headers
+
+    @Column(name = "last_modified")
+    private String lastModified;
+
+    @Column(name = "content_hash")
+    private String contentHash; // Fingerprint of the extracted text, catches servers without validators
+
+    @Column(name = "last_status")
+    private String lastStatus; // "CHANGED", "UNCHANGED", "NOT_MODIFIED" or "FAILED"
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "last_checked_at")
+    private ZonedDateTime lastCheckedAt;
+
+    @Column(name = "last_changed_at")
+    private ZonedDateTime lastChangedAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private ZonedDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private ZonedDateTime updatedAt;
+}
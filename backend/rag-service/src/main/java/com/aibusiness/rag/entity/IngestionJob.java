@@ -0,0 +1,64 @@
+package com.aibusiness.rag.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ingestion_jobs") // Schema and indexes: VectorSchemaInitializer
+public class IngestionJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "source_type", nullable = false)
+    private String sourceType; // "FILE", "URL" or "SITE"
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String source; // Source id of an uploaded file (see IngestionService.fileSourceId) or URL
+
+    @Column(name = "user_id")
+    private Long userId; // Owning user's partition, null for the shared corpus
+
+    @Column(name = "max_depth")
+    private Integer maxDepth; // Link depth limit of a SITE crawl, null for the configured default
+
+    @Column(name = "max_pages")
+    private Integer maxPages; // Page limit of a SITE crawl, null for the configured default
+
+    @Column(columnDefinition = "TEXT")
+    private String filename; // Original name of an uploaded file, whose content waits in rag_ingest_uploads
+
+    @Column(nullable = false)
+    private String status; // "PENDING", "RUNNING", "COMPLETED", "FAILED"
+
+    @Column(name = "owner")
+    private String owner; // Instance running the job, set when it is claimed
+
+    @Column(name = "heartbeat_at")
+    private ZonedDateTime heartbeatAt; // Refreshed by the owner while the job runs
+
+    @Column(name = "chunks_processed")
+    private int chunksProcessed;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private ZonedDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private ZonedDateTime updatedAt;
+}
@@ -0,0 +1,8 @@
+package com.aibusiness.rag.event;
+
+import java.util.List;
+
+/**
+ * Published after chunks have been deleted from vector_store.
+ */
+public record ChunksRemovedEvent(List<String> chunkIds) {}
@@ -0,0 +1,10 @@
+package com.aibusiness.rag.event;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * Published after a batch of chunks and their embeddings has been written to vector_store.
+ */
+public record ChunksStoredEvent(List<Document> documents, List<float[]> embeddings) {}
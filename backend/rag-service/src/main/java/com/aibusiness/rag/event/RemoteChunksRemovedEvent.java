@@ -0,0 +1,9 @@
+package com.aibusiness.rag.event;
+
+import java.util.List;
+
+/**
+ * Published when another instance has deleted chunks from vector_store, as read from the
+ * change feed.
+ */
+public record RemoteChunksRemovedEvent(List<String> chunkIds) {}
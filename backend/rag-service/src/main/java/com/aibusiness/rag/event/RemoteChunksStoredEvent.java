@@ -0,0 +1,9 @@
+package com.aibusiness.rag.event;
+
+import java.util.List;
+
+/**
+ * Published when another instance has written chunks to vector_store, as read from the
+ * change feed. Unlike {@link ChunksStoredEvent} it carries only the ids.
+ */
+public record RemoteChunksStoredEvent(List<String> chunkIds) {}
@@ -0,0 +1,8 @@
+package com.aibusiness.rag.event;
+
+/**
+ * Published when another instance has changed the stored chunks of a source, as read from
+ * the change feed. Kept apart from {@link SourceChangedEvent} so that listeners which write
+ * to the database in response act once, on the instance that made the change.
+ */
+public record RemoteSourceChangedEvent(Long userId, String source) {}
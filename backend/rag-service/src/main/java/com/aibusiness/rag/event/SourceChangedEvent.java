@@ -0,0 +1,8 @@
+package com.aibusiness.rag.event;
+
+/**
+ * Published whenever the stored chunks of a source change (new, re-ingested or removed),
+ * so that anything derived from them can be invalidated. {@code userId} is the owning
+ * user, or null for the shared corpus.
+ */
+public record SourceChangedEvent(Long userId, String source) {}
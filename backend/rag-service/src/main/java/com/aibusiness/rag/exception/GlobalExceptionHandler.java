@@ -0,0 +1,36 @@
+package com.aibusiness.rag.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import java.util.Map;
+
+@ControllerAdvice
+public class GlobalExceptionHandler {
+
+    @ExceptionHandler(IngestionJobNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleJobNotFound(IngestionJobNotFoundException ex) {
+        return new ResponseEntity<>(Map.of("detail", ex.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(SourceNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleSourceNotFound(SourceNotFoundException ex) {
+        return new ResponseEntity<>(Map.of("detail", ex.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(MaintenanceInProgressException.class)
+    public ResponseEntity<Map<String, String>> handleMaintenanceInProgress(MaintenanceInProgressException ex) {
+        return new ResponseEntity<>(Map.of("detail", ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("detail", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IngestionException.class)
+    public ResponseEntity<Map<String, String>> handleIngestionException(IngestionException ex) {
+        return new ResponseEntity<>(Map.of("detail", "Failed to ingest source: " + ex.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+}
@@ -0,0 +1,7 @@
+package com.aibusiness.rag.exception;
+
+public class MaintenanceInProgressException extends RuntimeException {
+    public MaintenanceInProgressException(String message) {
+        super(message);
+    }
+}
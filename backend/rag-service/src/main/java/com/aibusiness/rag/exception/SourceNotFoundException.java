@@ -0,0 +1,7 @@
+package com.aibusiness.rag.exception;
+
+public class SourceNotFoundException extends RuntimeException {
+    public SourceNotFoundException(String message) {
+        super(message);
+    }
+}
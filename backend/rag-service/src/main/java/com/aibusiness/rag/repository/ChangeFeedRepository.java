@@ -0,0 +1,76 @@
+package com.aibusiness.rag.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The cross-instance change log of vector_store (rag_change_feed). Every instance appends
+ * the chunk and source changes it makes, and reads the ones made by the others.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChangeFeedRepository {
+
+    public static final String STORED = "STORED";
+    public static final String REMOVED = "REMOVED";
+    public static final String SOURCE = "SOURCE";
+
+    /**
+     * @param kind     {@link #STORED} or {@link #REMOVED} with {@code chunkIds}, or
+     *                 {@link #SOURCE} with {@code userId} and {@code source}
+     */
+    public record Change(long seq, String kind, Long userId, String source, List<String> chunkIds) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void append(String origin, String kind, Long userId, String source, List<String> chunkIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO rag_change_feed (origin, kind, user_id, source, chunk_ids) VALUES (?, ?, ?, ?, ?)");
+            ps.setString(1, origin);
+            ps.setString(2, kind);
+            ps.setObject(3, userId, Types.BIGINT);
+            ps.setString(4, source);
+            ps.setArray(5, chunkIds != null ? connection.createArrayOf("text", chunkIds.toArray()) : null);
+            return ps;
+        });
+    }
+
+    public long lastSeq() {
+        Long seq = jdbcTemplate.queryForObject("SELECT coalesce(max(seq), 0) FROM rag_change_feed", Long.class);
+        return seq != null ? seq : 0;
+    }
+
+    /**
+     * Changes made by other instances after {@code afterSeq}, oldest first. Only rows older
+     * than {@code lag} are returned: sequence numbers are handed out before commit, so a
+     * younger row may still be followed by an older one becoming visible.
+     */
+    public List<Change> readAfter(long afterSeq, String origin, Duration lag, int limit) {
+        return jdbcTemplate.query(
+                "SELECT seq, kind, user_id, source, chunk_ids FROM rag_change_feed " +
+                        "WHERE seq > ? AND origin <> ? AND created_at < now() - make_interval(secs => ?) " +
+                        "ORDER BY seq LIMIT ?",
+                (rs, rowNum) -> {
+                    Array ids = rs.getArray("chunk_ids");
+                    long userId = rs.getLong("user_id");
+                    return new Change(rs.getLong("seq"), rs.getString("kind"), rs.wasNull() ? null : userId,
+                            rs.getString("source"), ids != null ? Arrays.asList((String[]) ids.getArray()) : List.of());
+                },
+                afterSeq, origin, lag.toMillis() / 1000.0, limit);
+    }
+
+    public int deleteOlderThan(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM rag_change_feed WHERE created_at < ?", Timestamp.from(cutoff));
+    }
+}
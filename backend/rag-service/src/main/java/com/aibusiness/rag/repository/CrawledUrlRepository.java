@@ -0,0 +1,36 @@
+package com.aibusiness.rag.repository;
+
+import com.aibusiness.rag.entity.CrawledUrl;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface CrawledUrlRepository extends JpaRepository<CrawledUrl, UUID> {
+
+    // A null userId matches the shared corpus
+    @Query("SELECT c FROM CrawledUrl c WHERE c.url = :url AND " +
+            "((:userId IS NULL AND c.userId IS NULL) OR c.userId = :userId)")
+    Optional<CrawledUrl> findByUrlAndUser(@Param("url") String url, @Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CrawledUrl c WHERE c.url = :url AND " +
+            "((:userId IS NULL AND c.userId IS NULL) OR c.userId = :userId)")
+    int deleteByUrlAndUser(@Param("url") String url, @Param("userId") Long userId);
+
+    // Claims up to :limit URLs not checked since the cutoff, least recently checked first, by marking them
+    // checked now. SKIP LOCKED leaves rows another instance is claiming to it, so no URL is claimed twice.
+    @Transactional
+    @Query(value = "UPDATE crawled_urls SET last_checked_at = now() WHERE id IN (" +
+            "SELECT id FROM crawled_urls WHERE last_checked_at < :cutoff ORDER BY last_checked_at " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING *", nativeQuery = true)
+    List<CrawledUrl> claimDue(@Param("cutoff") ZonedDateTime cutoff, @Param("limit") int limit);
+}
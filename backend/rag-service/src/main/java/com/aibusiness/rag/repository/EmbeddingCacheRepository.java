@@ -0,0 +1,58 @@
+package com.aibusiness.rag.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent tier of the embedding cache. Vectors are stored as packed little-endian
+ * float32 bytes, which is as compact as the in-memory representation.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmbeddingCacheRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Map<String, float[]> findAll(Collection<String> cacheKeys) {
+        Map<String, float[]> result = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT cache_key, embedding FROM rag_embedding_cache WHERE cache_key = ANY (?)");
+            ps.setArray(1, connection.createArrayOf("text", cacheKeys.toArray()));
+            return ps;
+        }, rs -> {
+            result.put(rs.getString("cache_key"), unpack(rs.getBytes("embedding")));
+        });
+        return result;
+    }
+
+    public void saveAll(String model, Map<String, float[]> embeddings) {
+        List<Object[]> rows = embeddings.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), model, pack(entry.getValue())})
+                .toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO rag_embedding_cache (cache_key, model, embedding) VALUES (?, ?, ?) " +
+                        "ON CONFLICT (cache_key) DO NOTHING", rows);
+    }
+
+    private static byte[] pack(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] unpack(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
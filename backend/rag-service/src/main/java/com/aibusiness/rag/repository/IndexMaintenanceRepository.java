@@ -0,0 +1,312 @@
+package com.aibusiness.rag.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Catalog statistics and maintenance statements for vector_store and its indexes.
+ * <p>
+ * Index bloat is tracked as bytes per indexed row against a baseline taken when the index
+ * was last (re)built, kept in rag_index_maintenance: HNSW graphs only reuse the space of
+ * deleted rows partially, so an index whose partition churns keeps growing while its row
+ * count does not.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IndexMaintenanceRepository {
+
+    private static final String TABLE = "vector_store";
+    private static final String SHADOW_TABLE = "vector_store_rebuild";
+    private static final String SHADOW_SUFFIX = "_rebuild";
+    // Ids of the rows written while a rebuild copies the table, filled by CHANGE_TRIGGER
+    private static final String CHANGE_LOG = "vector_store_rebuild_changes";
+    private static final String CHANGE_TRIGGER = "vector_store_rebuild_capture";
+    // Session advisory lock held by whichever instance is changing vector_store's indexes or table
+    private static final long MAINTENANCE_LOCK = 0x7261675F696478L; // "rag_idx"
+
+    private static final Pattern INDEX_DEF = Pattern.compile("^CREATE (UNIQUE )?INDEX (\\S+) ON (?:\\S+\\.)?vector_store (.*)$");
+    private static final Pattern WITH_CLAUSE = Pattern.compile(" WITH \\([^)]*\\)");
+
+    /**
+     * @param lastVacuum  latest manual or automatic vacuum, null if never
+     * @param lastAnalyze latest manual or automatic analyze, null if never
+     */
+    public record TableStats(long liveTuples, long deadTuples, long totalBytes, Instant lastVacuum, Instant lastAnalyze) {}
+
+    /**
+     * @param predicate            WHERE clause of a partial index, null for a full one
+     * @param indexedRows          live rows the index covers
+     * @param baselineBytesPerRow  bytes per row when the index was built, null if not recorded yet
+     */
+    public record IndexStats(String name, String method, boolean valid, long bytes, long scans, String predicate,
+                             long indexedRows, Double baselineBytesPerRow) {
+
+        public double bytesPerRow() {
+            return indexedRows > 0 ? (double) bytes / indexedRows : 0;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TableStats tableStats() {
+        return jdbcTemplate.queryForObject(
+                "SELECT n_live_tup, n_dead_tup, pg_total_relation_size(relid) AS total_bytes, " +
+                        "greatest(last_vacuum, last_autovacuum) AS last_vacuum, " +
+                        "greatest(last_analyze, last_autoanalyze) AS last_analyze " +
+                        "FROM pg_stat_user_tables WHERE relid = 'vector_store'::regclass",
+                (rs, rowNum) -> new TableStats(rs.getLong("n_live_tup"), rs.getLong("n_dead_tup"),
+                        rs.getLong("total_bytes"), toInstant(rs.getTimestamp("last_vacuum")),
+                        toInstant(rs.getTimestamp("last_analyze"))));
+    }
+
+    /**
+     * Every secondary index of vector_store. Rows covered by a partial index are counted with
+     * its predicate, which the partition B-tree index answers; full indexes cover
+     * {@code liveTuples}.
+     */
+    public List<IndexStats> indexStats(long liveTuples) {
+        List<IndexStats> stats = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT c.relname AS name, a.amname AS method, i.indisvalid AS valid, pg_relation_size(c.oid) AS bytes, " +
+                        "coalesce(s.idx_scan, 0) AS scans, pg_get_expr(i.indpred, i.indrelid) AS predicate, " +
+                        "b.bytes_per_row_baseline " +
+                        "FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_am a ON a.oid = c.relam " +
+                        "LEFT JOIN pg_stat_user_indexes s ON s.indexrelid = i.indexrelid " +
+                        "LEFT JOIN rag_index_maintenance b ON b.index_name = c.relname " +
+                        "WHERE i.indrelid = 'vector_store'::regclass AND NOT i.indisprimary ORDER BY c.relname",
+                rs -> {
+                    String predicate = rs.getString("predicate");
+                    double baseline = rs.getDouble("bytes_per_row_baseline");
+                    stats.add(new IndexStats(rs.getString("name"), rs.getString("method"), rs.getBoolean("valid"),
+                            rs.getLong("bytes"), rs.getLong("scans"), predicate, liveTuples,
+                            rs.wasNull() ? null : baseline));
+                });
+        return stats.stream()
+                .map(index -> index.predicate() == null ? index : new IndexStats(index.name(), index.method(),
+                        index.valid(), index.bytes(), index.scans(), index.predicate(),
+                        countRows(index.predicate()), index.baselineBytesPerRow()))
+                .toList();
+    }
+
+    public void saveBaseline(String indexName, double bytesPerRow) {
+        jdbcTemplate.update(
+                "INSERT INTO rag_index_maintenance (index_name, bytes_per_row_baseline, baseline_at) VALUES (?, ?, now()) " +
+                        "ON CONFLICT (index_name) DO UPDATE SET bytes_per_row_baseline = EXCLUDED.bytes_per_row_baseline, " +
+                        "baseline_at = EXCLUDED.baseline_at",
+                indexName, bytesPerRow);
+    }
+
+    /**
+     * Runs {@code task} while holding the cluster-wide maintenance lock, so that no two
+     * instances vacuum, reindex, rebuild or build indexes of vector_store at the same time.
+     * The lock belongs to a connection held for the whole task; the task's own statements
+     * run on other connections.
+     *
+     * @param wait whether to wait for the lock instead of giving up when another instance holds it
+     * @return false, without running the task, when the lock was taken and {@code wait} is false
+     */
+    public boolean runLocked(boolean wait, Runnable task) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                if (wait) {
+                    statement.execute("SELECT pg_advisory_lock(" + MAINTENANCE_LOCK + ")");
+                } else {
+                    try (ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + MAINTENANCE_LOCK + ")")) {
+                        if (!rs.next() || !rs.getBoolean(1)) {
+                            return false;
+                        }
+                    }
+                }
+                try {
+                    task.run();
+                    return true;
+                } finally {
+                    statement.execute("SELECT pg_advisory_unlock(" + MAINTENANCE_LOCK + ")");
+                }
+            }
+        }));
+    }
+
+    /**
+     * Whether some instance currently holds the maintenance lock.
+     */
+    public boolean isLocked() {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_locks WHERE locktype = 'advisory' AND granted " +
+                        "AND classid = ? AND objid = ? AND objsubid = 1)", Boolean.class,
+                MAINTENANCE_LOCK >>> 32, MAINTENANCE_LOCK & 0xFFFFFFFFL);
+        return Boolean.TRUE.equals(locked);
+    }
+
+    /**
+     * Reclaims dead tuples and refreshes planner statistics. VACUUM cannot run inside a
+     * transaction, so this must not be called from a transactional method.
+     */
+    public void vacuum() {
+        jdbcTemplate.execute("VACUUM (ANALYZE) " + TABLE);
+    }
+
+    /**
+     * Rebuilds one index of vector_store without blocking reads or writes. A failed build
+     * leaves an invalid "_ccnew" copy behind, which is dropped.
+     */
+    public void reindex(String indexName) {
+        if (!indexNames().contains(indexName)) {
+            throw new IllegalArgumentException("Unknown vector_store index: " + indexName);
+        }
+        try {
+            jdbcTemplate.execute("REINDEX INDEX CONCURRENTLY " + indexName);
+        } catch (RuntimeException e) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName + "_ccnew");
+            throw e;
+        }
+    }
+
+    /**
+     * Rebuilds vector_store and all of its indexes with new HNSW parameters behind a shadow
+     * table, then swaps it in. The copy and the index builds run without locks while a
+     * trigger logs the ids of rows written meanwhile; the final catch-up replays only those
+     * rows under an EXCLUSIVE lock, which blocks writers but not readers, and only the drop
+     * and rename at the very end block readers as well.
+     * Needs free disk space for a second copy of the table while it runs.
+     *
+     * @param maintenanceWorkMem memory for the index builds (e.g. "1GB"), null for the server setting
+     * @return the names of the rebuilt indexes
+     */
+    public List<String> rebuild(int m, int efConstruction, String maintenanceWorkMem) {
+        Map<String, String> definitions = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT c.relname, pg_get_indexdef(i.indexrelid) AS definition " +
+                        "FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "WHERE i.indrelid = 'vector_store'::regclass AND NOT i.indisprimary AND i.indisvalid",
+                rs -> {
+                    definitions.put(rs.getString("relname"), rs.getString("definition"));
+                });
+        String primaryKey = jdbcTemplate.queryForObject(
+                "SELECT conname FROM pg_constraint WHERE conrelid = 'vector_store'::regclass AND contype = 'p'", String.class);
+
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                if (maintenanceWorkMem != null) {
+                    try (PreparedStatement ps = connection.prepareStatement("SELECT set_config('maintenance_work_mem', ?, false)")) {
+                        ps.setString(1, maintenanceWorkMem);
+                        ps.execute();
+                    }
+                }
+                dropChangeCapture(statement); // Left over by an interrupted rebuild
+                statement.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+                // Capture starts before the copy's snapshot, so every write is in the copy, the log or both
+                statement.execute("CREATE UNLOGGED TABLE " + CHANGE_LOG + " (id uuid PRIMARY KEY)");
+                statement.execute("CREATE OR REPLACE FUNCTION " + CHANGE_TRIGGER + "() RETURNS trigger LANGUAGE plpgsql AS $$ " +
+                        "BEGIN " +
+                        "INSERT INTO " + CHANGE_LOG + " VALUES (CASE WHEN TG_OP = 'DELETE' THEN OLD.id ELSE NEW.id END) " +
+                        "ON CONFLICT DO NOTHING; " +
+                        "RETURN NULL; " +
+                        "END $$");
+                statement.execute("CREATE TRIGGER " + CHANGE_TRIGGER + " AFTER INSERT OR UPDATE OR DELETE ON " + TABLE +
+                        " FOR EACH ROW EXECUTE FUNCTION " + CHANGE_TRIGGER + "()");
+                statement.execute("CREATE TABLE " + SHADOW_TABLE + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                statement.execute("INSERT INTO " + SHADOW_TABLE + " SELECT * FROM " + TABLE);
+                statement.execute("ALTER TABLE " + SHADOW_TABLE + " ADD CONSTRAINT " + primaryKey + SHADOW_SUFFIX + " PRIMARY KEY (id)");
+                for (Map.Entry<String, String> index : definitions.entrySet()) {
+                    statement.execute(shadowDefinition(index.getValue(), m, efConstruction));
+                }
+                swap(connection, statement, primaryKey, definitions.keySet());
+            } catch (SQLException | RuntimeException e) {
+                try (Statement statement = connection.createStatement()) {
+                    dropChangeCapture(statement);
+                    statement.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+                }
+                throw e;
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("RESET maintenance_work_mem"); // The connection goes back to the pool
+                }
+            }
+            return List.copyOf(definitions.keySet());
+        });
+    }
+
+    private void swap(Connection connection, Statement statement, String primaryKey, Iterable<String> indexNames) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            statement.execute("LOCK TABLE " + TABLE + " IN EXCLUSIVE MODE");
+            // Only rows written since the copy started can differ: replace each logged id with its current row, if any
+            statement.execute("DELETE FROM " + SHADOW_TABLE + " r USING " + CHANGE_LOG + " c WHERE r.id = c.id");
+            statement.execute("INSERT INTO " + SHADOW_TABLE + " SELECT v.* FROM " + TABLE + " v " +
+                    "JOIN " + CHANGE_LOG + " c ON c.id = v.id");
+            statement.execute("DROP TABLE " + TABLE); // Takes the capture trigger with it
+            statement.execute("DROP TABLE " + CHANGE_LOG);
+            statement.execute("DROP FUNCTION " + CHANGE_TRIGGER + "()");
+            statement.execute("ALTER TABLE " + SHADOW_TABLE + " RENAME TO " + TABLE);
+            statement.execute("ALTER INDEX " + primaryKey + SHADOW_SUFFIX + " RENAME TO " + primaryKey);
+            for (String name : indexNames) {
+                statement.execute("ALTER INDEX " + name + SHADOW_SUFFIX + " RENAME TO " + name);
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static void dropChangeCapture(Statement statement) throws SQLException {
+        statement.execute("DROP TRIGGER IF EXISTS " + CHANGE_TRIGGER + " ON " + TABLE);
+        statement.execute("DROP FUNCTION IF EXISTS " + CHANGE_TRIGGER + "()");
+        statement.execute("DROP TABLE IF EXISTS " + CHANGE_LOG);
+    }
+
+    /**
+     * The CREATE INDEX statement of an index, retargeted at the shadow table under the
+     * shadow name; HNSW indexes get the new build parameters.
+     */
+    static String shadowDefinition(String definition, int m, int efConstruction) {
+        Matcher matcher = INDEX_DEF.matcher(definition);
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Unexpected index definition: " + definition);
+        }
+        String rest = matcher.group(3);
+        if (rest.startsWith("USING hnsw ")) {
+            int where = rest.indexOf(" WHERE ");
+            String columns = WITH_CLAUSE.matcher(where >= 0 ? rest.substring(0, where) : rest).replaceAll("");
+            rest = columns + " WITH (m = " + m + ", ef_construction = " + efConstruction + ")"
+                    + (where >= 0 ? rest.substring(where) : "");
+        }
+        return "CREATE " + (matcher.group(1) != null ? matcher.group(1) : "") + "INDEX " + matcher.group(2) + SHADOW_SUFFIX
+                + " ON " + SHADOW_TABLE + " " + rest;
+    }
+
+    public List<String> indexNames() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "WHERE i.indrelid = 'vector_store'::regclass", String.class);
+    }
+
+    private long countRows(String predicate) {
+        // The predicate comes from the catalog, not from a caller
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + TABLE + " WHERE " + predicate, Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+}
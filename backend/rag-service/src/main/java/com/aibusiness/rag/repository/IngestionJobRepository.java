@@ -0,0 +1,47 @@
+package com.aibusiness.rag.repository;
+
+import com.aibusiness.rag.entity.IngestionJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, UUID> {
+
+    List<IngestionJob> findByStatusOrderByCreatedAtAsc(String status, Pageable pageable);
+
+    // Atomically moves a pending job to RUNNING under this owner; returns 0 if another worker got there first.
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.status = 'RUNNING', j.owner = :owner, j.heartbeatAt = CURRENT_TIMESTAMP, " +
+           "j.updatedAt = CURRENT_TIMESTAMP WHERE j.id = :id AND j.status = 'PENDING'")
+    int claim(@Param("id") UUID id, @Param("owner") String owner);
+
+    // Returns the number of jobs still owned; fewer than ids.size() means some were re-queued meanwhile.
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.heartbeatAt = CURRENT_TIMESTAMP WHERE j.id IN :ids AND j.owner = :owner AND j.status = 'RUNNING'")
+    int heartbeat(@Param("ids") Collection<UUID> ids, @Param("owner") String owner);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.chunksProcessed = :chunks, j.updatedAt = CURRENT_TIMESTAMP WHERE j.id = :id")
+    void updateProgress(@Param("id") UUID id, @Param("chunks") int chunks);
+
+    // Jobs whose owner died (no heartbeat since the cutoff) go back to the queue. The caller's own
+    // jobs are never taken: they are running here, however long they take.
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.status = 'PENDING', j.owner = NULL, j.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE j.status = 'RUNNING' AND COALESCE(j.heartbeatAt, j.updatedAt) < :cutoff " +
+           "AND (j.owner IS NULL OR j.owner <> :owner)")
+    int requeueStale(@Param("cutoff") ZonedDateTime cutoff, @Param("owner") String owner);
+}
@@ -0,0 +1,63 @@
+package com.aibusiness.rag.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Uploaded files of FILE ingestion jobs (rag_ingest_uploads), kept in the database so
+ * whichever instance claims a job can read its file. A file is stored in parts of
+ * {@code rag.jobs.upload-part-bytes} and read back one part at a time, so neither side
+ * ever holds more than a part in memory.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngestionUploadRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${rag.jobs.upload-part-bytes:8388608}")
+    private int partBytes;
+
+    public void save(UUID jobId, Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            int part = 0;
+            byte[] data;
+            while ((data = input.readNBytes(partBytes)).length > 0) {
+                jdbcTemplate.update("INSERT INTO rag_ingest_uploads (job_id, part, data) VALUES (?, ?, ?)",
+                        new Object[]{jobId, part++, data}, new int[]{Types.OTHER, Types.INTEGER, Types.BINARY});
+            }
+        }
+    }
+
+    /**
+     * Writes the stored file of a job to {@code target}.
+     */
+    public void copyTo(UUID jobId, Path target) throws IOException {
+        try (OutputStream output = Files.newOutputStream(target)) {
+            for (int part = 0; ; part++) {
+                List<byte[]> data = jdbcTemplate.query(
+                        "SELECT data FROM rag_ingest_uploads WHERE job_id = ? AND part = ?",
+                        (rs, rowNum) -> rs.getBytes(1), jobId, part);
+                if (data.isEmpty()) {
+                    break;
+                }
+                output.write(data.get(0));
+            }
+        }
+    }
+
+    public void delete(UUID jobId) {
+        jdbcTemplate.update("DELETE FROM rag_ingest_uploads WHERE job_id = ?", jobId);
+    }
+}
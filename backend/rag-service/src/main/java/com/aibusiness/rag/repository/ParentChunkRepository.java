@@ -0,0 +1,74 @@
+package com.aibusiness.rag.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Parent sections of structure-chunked sources (rag_parent_chunks). They are not embedded;
+ * retrieval finds their children in vector_store and expands to the parent by id.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ParentChunkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stores parents of a source. Ids are derived from the content, so an unchanged
+     * section is already stored and left alone.
+     */
+    public void saveAll(Long userId, String source, List<Document> parents, long ingestVersion) {
+        List<Object[]> rows = parents.stream()
+                .map(parent -> new Object[]{UUID.fromString(parent.getId()), userId, source, parent.getContent(), ingestVersion})
+                .toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO rag_parent_chunks (id, user_id, source, content, ingest_version) VALUES (?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (id) DO NOTHING",
+                rows, new int[]{Types.OTHER, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT});
+    }
+
+    /**
+     * Deletes the parents of a source that are no longer part of it, among those stored by
+     * ingests older than {@code ingestVersion}.
+     */
+    public int deleteStale(Long userId, String source, Collection<String> currentIds, long ingestVersion) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM rag_parent_chunks WHERE source = ? AND user_id IS NOT DISTINCT FROM ? " +
+                            "AND NOT (id = ANY (?)) AND coalesce(ingest_version, 0) < ?");
+            ps.setString(1, source);
+            ps.setObject(2, userId, Types.BIGINT);
+            ps.setArray(3, connection.createArrayOf("uuid", currentIds.stream().map(UUID::fromString).toArray()));
+            ps.setLong(4, ingestVersion);
+            return ps;
+        });
+    }
+
+    public int deleteBySource(Long userId, String source) {
+        return jdbcTemplate.update(
+                "DELETE FROM rag_parent_chunks WHERE source = ? AND user_id IS NOT DISTINCT FROM ?",
+                new Object[]{source, userId}, new int[]{Types.VARCHAR, Types.BIGINT});
+    }
+
+    public Map<String, String> findContents(Collection<String> ids) {
+        Map<String, String> contents = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id, content FROM rag_parent_chunks WHERE id = ANY (?)");
+            ps.setArray(1, connection.createArrayOf("uuid", ids.stream().map(UUID::fromString).toArray()));
+            return ps;
+        }, rs -> {
+            contents.put(rs.getString("id"), rs.getString("content"));
+        });
+        return contents;
+    }
+}
@@ -0,0 +1,110 @@
+package com.aibusiness.rag.repository;
+
+import com.aibusiness.rag.service.ScalarQuantizer;
+import com.pgvector.PGvector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Quantization state kept next to vector_store: the fitted scalar quantizer in
+ * rag_quantization_params and the int8 code of every chunk in vector_store.embedding_i8.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuantizationRepository {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<ScalarQuantizer> findParams() {
+        List<ScalarQuantizer> params = jdbcTemplate.query(
+                "SELECT offsets, scales FROM rag_quantization_params WHERE id = 1",
+                (rs, rowNum) -> new ScalarQuantizer(toFloats(rs.getArray("offsets")), toFloats(rs.getArray("scales"))));
+        return params.stream().findFirst();
+    }
+
+    public void saveParams(ScalarQuantizer quantizer) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO rag_quantization_params (id, dimensions, offsets, scales, fitted_at) " +
+                            "VALUES (1, ?, ?, ?, now()) ON CONFLICT (id) DO UPDATE SET dimensions = EXCLUDED.dimensions, " +
+                            "offsets = EXCLUDED.offsets, scales = EXCLUDED.scales, fitted_at = EXCLUDED.fitted_at");
+            ps.setInt(1, quantizer.dimensions());
+            ps.setArray(2, connection.createArrayOf("float4", boxed(quantizer.offsets())));
+            ps.setArray(3, connection.createArrayOf("float4", boxed(quantizer.scales())));
+            return ps;
+        });
+    }
+
+    /**
+     * A random sample of about {@code size} stored embeddings, for fitting and evaluation.
+     * TABLESAMPLE SYSTEM reads only the sampled share of the table's pages, where
+     * {@code ORDER BY random()} would read and sort every row; the share is set from the
+     * planner's row estimate with some headroom and the result cut to {@code size}.
+     */
+    public List<float[]> sampleEmbeddings(int size) {
+        Long rows = jdbcTemplate.queryForObject(
+                "SELECT greatest(reltuples, 0)::bigint FROM pg_class WHERE oid = 'vector_store'::regclass", Long.class);
+        double percent = rows == null || rows == 0 ? 100 : Math.min(100, 200.0 * size / rows);
+        return jdbcTemplate.query(
+                "SELECT embedding FROM vector_store TABLESAMPLE SYSTEM (?) LIMIT ?",
+                (rs, rowNum) -> new PGvector(rs.getString("embedding")).toArray(), percent, size);
+    }
+
+    /**
+     * The next page of embeddings after {@code afterId} in id order (null starts at the
+     * beginning). With {@code missingOnly} only rows that have no int8 code yet are returned.
+     */
+    public Map<UUID, float[]> findEmbeddingPage(UUID afterId, boolean missingOnly, int limit) {
+        Map<UUID, float[]> page = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, embedding FROM vector_store WHERE id > ? AND (NOT ? OR embedding_i8 IS NULL) " +
+                        "ORDER BY id LIMIT ?",
+                rs -> {
+                    page.put(rs.getObject("id", UUID.class), new PGvector(rs.getString("embedding")).toArray());
+                },
+                afterId != null ? afterId : FIRST_ID, missingOnly, limit);
+        return page;
+    }
+
+    public void saveCodes(Map<UUID, byte[]> codes) {
+        List<Object[]> rows = codes.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE vector_store SET embedding_i8 = ? WHERE id = ?", rows);
+    }
+
+    public long countQuantized() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM vector_store WHERE embedding_i8 IS NOT NULL", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static Float[] boxed(float[] values) {
+        Float[] boxed = new Float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+
+    private static float[] toFloats(Array array) throws SQLException {
+        Float[] boxed = (Float[]) array.getArray();
+        float[] values = new float[boxed.length];
+        for (int i = 0; i < boxed.length; i++) {
+            values[i] = boxed[i];
+        }
+        return values;
+    }
+}
@@ -0,0 +1,81 @@
+package com.aibusiness.rag.repository;
+
+import com.aibusiness.rag.dto.SourceResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Per-source view of vector_store and the source expiry table (rag_source_ttl). A source is
+ * the file name or URL in the "source" metadata key of its chunks, within one partition.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SourceRepository {
+
+    public record SourceKey(Long userId, String source) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Sources of one partition in name order with their chunk counts, starting after
+     * {@code after} (null starts at the beginning).
+     */
+    public List<SourceResponse> findSources(Long userId, String after, int limit) {
+        return jdbcTemplate.query(
+                "SELECT s.source, s.chunks, t.expires_at FROM (" +
+                        "SELECT metadata->>'source' AS source, count(*) AS chunks FROM vector_store " +
+                        "WHERE " + VectorChunkRepository.partitionPredicate(userId) + " AND metadata->>'source' > ? " +
+                        "GROUP BY 1 ORDER BY 1 LIMIT ?) s " +
+                        "LEFT JOIN rag_source_ttl t ON t.source = s.source AND t.user_id IS NOT DISTINCT FROM ? " +
+                        "ORDER BY s.source",
+                (rs, rowNum) -> {
+                    Timestamp expiresAt = rs.getTimestamp("expires_at");
+                    return new SourceResponse(rs.getString("source"), rs.getLong("chunks"),
+                            expiresAt != null ? expiresAt.toInstant() : null);
+                },
+                after != null ? after : "", limit, userId);
+    }
+
+    public void saveExpiry(Long userId, String source, Instant expiresAt) {
+        jdbcTemplate.update(
+                "INSERT INTO rag_source_ttl (user_id, source, expires_at) VALUES (?, ?, ?) " +
+                        "ON CONFLICT (source, coalesce(user_id, -1)) DO UPDATE SET expires_at = EXCLUDED.expires_at",
+                new Object[]{userId, source, Timestamp.from(expiresAt)},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP});
+    }
+
+    /**
+     * Moves the expiry to {@code expiresAt} unless it is already later, so re-ingestion
+     * never shortens an expiry that was set explicitly.
+     */
+    public void extendExpiry(Long userId, String source, Instant expiresAt) {
+        jdbcTemplate.update(
+                "INSERT INTO rag_source_ttl (user_id, source, expires_at) VALUES (?, ?, ?) " +
+                        "ON CONFLICT (source, coalesce(user_id, -1)) " +
+                        "DO UPDATE SET expires_at = greatest(rag_source_ttl.expires_at, EXCLUDED.expires_at)",
+                new Object[]{userId, source, Timestamp.from(expiresAt)},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP});
+    }
+
+    public void deleteExpiry(Long userId, String source) {
+        jdbcTemplate.update(
+                "DELETE FROM rag_source_ttl WHERE source = ? AND user_id IS NOT DISTINCT FROM ?",
+                new Object[]{source, userId}, new int[]{Types.VARCHAR, Types.BIGINT});
+    }
+
+    /**
+     * Sources whose expiry has passed, longest expired first.
+     */
+    public List<SourceKey> findExpired(int limit) {
+        return jdbcTemplate.query(
+                "SELECT user_id, source FROM rag_source_ttl WHERE expires_at <= now() ORDER BY expires_at LIMIT ?",
+                (rs, rowNum) -> new SourceKey(rs.getObject("user_id", Long.class), rs.getString("source")),
+                limit);
+    }
+}
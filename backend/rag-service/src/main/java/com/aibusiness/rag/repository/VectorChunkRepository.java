@@ -0,0 +1,321 @@
+package com.aibusiness.rag.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Direct JDBC access to the pgvector "vector_store" table managed by Spring AI.
+ * Used where the VectorStore abstraction is too coarse, e.g. batched writes.
+ * <p>
+ * Chunks are partitioned by the "user_id" metadata key; chunks without one form the
+ * shared corpus. Every read is confined to a single partition.
+ */
+@Repository
+public class VectorChunkRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO vector_store (id, content, metadata, embedding) VALUES (?, ?, ?::json, ?) " +
+            "ON CONFLICT (id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int dimensions;
+    private final int overfetch;
+
+    public VectorChunkRepository(JdbcTemplate jdbcTemplate,
+                                 ObjectMapper objectMapper,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${spring.ai.vectorstore.pgvector.dimensions:768}") int dimensions,
+                                 @Value("${rag.index.halfvec-overfetch:4}") int overfetch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.dimensions = dimensions;
+        this.overfetch = Math.max(1, overfetch);
+    }
+
+    /**
+     * Writes the chunks and their embeddings in a single JDBC batch.
+     * Inserts are idempotent on the chunk id, so a retried batch never duplicates rows.
+     */
+    public void batchInsert(List<Document> documents, List<float[]> embeddings) {
+        List<Object[]> rows = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            rows.add(new Object[]{
+                    UUID.fromString(document.getId()),
+                    document.getContent(),
+                    toJson(document),
+                    new PGvector(embeddings.get(i))
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Content hashes of every chunk currently stored for the given source.
+     */
+    public Set<String> findContentHashes(Long userId, String source) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT metadata->>'content_hash' FROM vector_store " +
+                        "WHERE " + partitionPredicate(userId) + " AND metadata->>'source' = ? " +
+                        "AND metadata->>'content_hash' IS NOT NULL",
+                String.class, source));
+    }
+
+    /**
+     * A new ingest version, increasing across instances. Ingests that start later get
+     * higher versions.
+     */
+    public long nextIngestVersion() {
+        Long version = jdbcTemplate.queryForObject("SELECT nextval('rag_ingest_version_seq')", Long.class);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Removes chunks of the source whose hash is not in the current set, i.e. text that
+     * disappeared from the source since it was last ingested. Only chunks written by ingests
+     * older than {@code ingestVersion} are candidates, so a concurrent, newer ingest of the
+     * same source keeps what it has written.
+     */
+    public List<String> deleteStaleChunks(Long userId, String source, Set<String> currentHashes, long ingestVersion) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM vector_store WHERE " + partitionPredicate(userId) + " AND metadata->>'source' = ? " +
+                            "AND (metadata->>'content_hash' IS NULL OR NOT (metadata->>'content_hash' = ANY (?))) " +
+                            "AND coalesce((metadata->>'ingest_version')::bigint, 0) < ? " +
+                            "RETURNING id");
+            ps.setString(1, source);
+            ps.setArray(2, connection.createArrayOf("text", currentHashes.toArray()));
+            ps.setLong(3, ingestVersion);
+            return ps;
+        }, (rs, rowNum) -> rs.getString("id"));
+    }
+
+    /**
+     * Deletes up to {@code limit} chunks of the source and returns their ids. Callers loop
+     * until fewer than {@code limit} come back, so a large source is removed in short
+     * statements instead of one long-running delete.
+     */
+    public List<String> deleteSourceChunks(Long userId, String source, int limit) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM vector_store WHERE id IN (SELECT id FROM vector_store " +
+                            "WHERE " + partitionPredicate(userId) + " AND metadata->>'source' = ? LIMIT ?) " +
+                            "RETURNING id");
+            ps.setString(1, source);
+            ps.setInt(2, limit);
+            return ps;
+        }, (rs, rowNum) -> rs.getString("id"));
+    }
+
+    public long countSourceChunks(Long userId, String source) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM vector_store WHERE " + partitionPredicate(userId) + " AND metadata->>'source' = ?",
+                Long.class, source);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Streams every stored chunk with its embedding, using a server-side cursor so the
+     * table is never materialised in memory.
+     */
+    @Transactional(readOnly = true)
+    public void forEachChunk(BiConsumer<Document, float[]> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id, content, metadata, embedding FROM vector_store");
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            Document document = toDocument(rs.getString("id"), rs.getString("content"), rs.getString("metadata"));
+            consumer.accept(document, new PGvector(rs.getString("embedding")).toArray());
+        });
+    }
+
+    /**
+     * The given chunks with their embeddings; ids that no longer exist are skipped.
+     */
+    public void forEachChunk(List<String> chunkIds, BiConsumer<Document, float[]> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, content, metadata, embedding FROM vector_store WHERE id = ANY (?)");
+            ps.setArray(1, connection.createArrayOf("uuid", chunkIds.stream().map(UUID::fromString).toArray()));
+            return ps;
+        }, rs -> {
+            Document document = toDocument(rs.getString("id"), rs.getString("content"), rs.getString("metadata"));
+            consumer.accept(document, new PGvector(rs.getString("embedding")).toArray());
+        });
+    }
+
+    /**
+     * Like {@link #forEachChunk} but hands out int8 codes: the backfilled embedding_i8
+     * column where present, otherwise the float embedding passed through {@code encoder}.
+     */
+    @Transactional(readOnly = true)
+    public void forEachQuantizedChunk(Function<float[], byte[]> encoder, BiConsumer<Document, byte[]> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, content, metadata, embedding_i8, " +
+                            "CASE WHEN embedding_i8 IS NULL THEN embedding END AS embedding FROM vector_store");
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            Document document = toDocument(rs.getString("id"), rs.getString("content"), rs.getString("metadata"));
+            byte[] code = rs.getBytes("embedding_i8");
+            consumer.accept(document, code != null ? code : encoder.apply(new PGvector(rs.getString("embedding")).toArray()));
+        });
+    }
+
+    /**
+     * Exact cosine similarity between the query and each of the given chunks, computed by
+     * pgvector on the full-precision embeddings. Used to re-rank approximate candidates.
+     */
+    public Map<String, Double> similarities(List<String> chunkIds, float[] query) {
+        Map<String, Double> similarities = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, 1 - (embedding <=> ?) AS similarity FROM vector_store WHERE id = ANY (?)");
+            ps.setObject(1, new PGvector(query));
+            ps.setArray(2, connection.createArrayOf("uuid", chunkIds.stream().map(UUID::fromString).toArray()));
+            return ps;
+        }, rs -> {
+            similarities.put(rs.getString("id"), rs.getDouble("similarity"));
+        });
+        return similarities;
+    }
+
+    /**
+     * Nearest chunks of one partition by cosine distance, each carrying its distance in the
+     * "distance" metadata key like PgVectorStore results. Partitions with their own partial
+     * HNSW index are searched through it; otherwise the partition's rows are selected
+     * first and ranked exactly, so the global index can never return another user's rows.
+     * <p>
+     * The HNSW indexes hold half-precision copies of the embeddings (see
+     * {@link #hnswIndexMethod()}), half the size of a full-precision graph. An indexed search
+     * therefore fetches {@code limit} times {@code rag.index.halfvec-overfetch} candidates by
+     * halfvec distance and re-ranks them on the full-precision embeddings.
+     * <p>
+     * A positive {@code efSearch} sets hnsw.ef_search for this query only. HNSW returns at
+     * most ef_search rows, so the setting is never below the number of candidates; with 0 the
+     * server setting is kept unless it is lower than that.
+     */
+    public List<Document> similaritySearch(Long userId, float[] embedding, int limit, boolean partitionIndexed, int efSearch) {
+        PGvector vector = new PGvector(embedding);
+        if (!partitionIndexed) {
+            return jdbcTemplate.query(
+                    "WITH partition AS MATERIALIZED (SELECT id, content, metadata, embedding FROM vector_store " +
+                            "WHERE " + partitionPredicate(userId) + ") " +
+                            "SELECT id, content, metadata, embedding <=> ? AS distance FROM partition " +
+                            "ORDER BY distance LIMIT ?",
+                    (rs, rowNum) -> toDistanceDocument(rs), vector, limit);
+        }
+        int candidates = limit * overfetch;
+        // The ORDER BY expression must match the indexed one, or the planner won't use the index
+        String sql = "SELECT id, content, metadata, embedding <=> ? AS distance FROM (" +
+                "SELECT id, content, metadata, embedding FROM vector_store WHERE " + partitionPredicate(userId) +
+                " ORDER BY " + halfvec("embedding") + " <=> " + halfvec("?") + " LIMIT ?) candidates " +
+                "ORDER BY distance LIMIT ?";
+        // SET LOCAL / set_config(..., true) only last until commit, so the setting never leaks to other users of the pooled connection
+        return transactionTemplate.execute(status -> {
+            if (efSearch > 0) {
+                jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + Math.max(efSearch, candidates));
+            } else {
+                jdbcTemplate.queryForObject("SELECT set_config('hnsw.ef_search', " +
+                        "greatest(coalesce(current_setting('hnsw.ef_search', true), '40')::int, ?)::text, true)",
+                        String.class, candidates);
+            }
+            return jdbcTemplate.query(sql, (rs, rowNum) -> toDistanceDocument(rs), vector, vector, candidates, limit);
+        });
+    }
+
+    /**
+     * Access method and operator class of the partial HNSW indexes, for CREATE INDEX. They
+     * index the embeddings cast to halfvec; similaritySearch orders by the same expression.
+     */
+    public String hnswIndexMethod() {
+        return "USING hnsw ((" + halfvec("embedding") + ") halfvec_cosine_ops)";
+    }
+
+    private String halfvec(String expression) {
+        return expression + "::halfvec(" + dimensions + ")";
+    }
+
+    public long countChunks(Long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM vector_store WHERE " + partitionPredicate(userId), Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Postgres full-text search over one partition, best ts_rank_cd first. The tsvector
+     * expression must stay identical to the one in vector_store_content_fts_idx so the GIN
+     * index is used.
+     */
+    public List<Document> fullTextSearch(Long userId, String query, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, content, metadata, ts_rank_cd(to_tsvector('english', content), q) AS rank " +
+                        "FROM vector_store, websearch_to_tsquery('english', ?) q " +
+                        "WHERE " + partitionPredicate(userId) + " AND to_tsvector('english', content) @@ q " +
+                        "ORDER BY rank DESC LIMIT ?",
+                (rs, rowNum) -> toDocument(rs.getString("id"), rs.getString("content"), rs.getString("metadata")),
+                query, limit);
+    }
+
+    /**
+     * SQL predicate selecting one partition. The user id is inlined rather than bound so the
+     * planner can match the predicate of the partition's partial index; it is a Long, so
+     * inlining is safe.
+     */
+    public static String partitionPredicate(Long userId) {
+        return userId == null
+                ? "(metadata->>'user_id') IS NULL"
+                : "(metadata->>'user_id') = '" + userId + "'";
+    }
+
+    private Document toDistanceDocument(ResultSet rs) throws SQLException {
+        Document document = toDocument(rs.getString("id"), rs.getString("content"), rs.getString("metadata"));
+        document.getMetadata().put("distance", rs.getFloat("distance"));
+        return document;
+    }
+
+    private Document toDocument(String id, String content, String metadataJson) {
+        try {
+            Map<String, Object> metadata = metadataJson != null
+                    ? objectMapper.readValue(metadataJson, new TypeReference<Map<String, Object>>() { })
+                    : new HashMap<>();
+            return new Document(id, content, metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt metadata for chunk " + id, e);
+        }
+    }
+
+    private String toJson(Document document) {
+        try {
+            return objectMapper.writeValueAsString(document.getMetadata());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize metadata for chunk " + document.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.repository.EmbeddingCacheRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * EmbeddingModel decorator that serves repeated texts from a bounded in-process
+ * W-TinyLFU cache and, optionally, a Postgres tier that survives restarts.
+ * Entries are keyed by model name, the request's options (which may override the model or
+ * the dimensions) and the hash of the normalised text, and only the misses of a request
+ * are sent to the underlying model. New embeddings are written to the persistent tier in
+ * the background, off the query path.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+
+    private static final ObjectMapper OPTIONS_MAPPER = new ObjectMapper();
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final Cache<String, float[]> memoryCache;
+    private final EmbeddingCacheRepository persistentCache; // null when the persistent tier is disabled
+    private final Executor persistExecutor;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param persistExecutor runs the writes to {@code persistentCache}; may drop them when
+     *                        saturated, since the persistent tier is only an optimisation
+     */
+    public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, long maxEntries,
+                                 EmbeddingCacheRepository persistentCache, Executor persistExecutor,
+                                 MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.memoryCache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        this.persistentCache = persistentCache;
+        this.persistExecutor = persistExecutor;
+        this.meterRegistry = meterRegistry;
+        CaffeineCacheMetrics.monitor(meterRegistry, memoryCache, "rag.embedding.cache");
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<String> texts = request.getInstructions();
+        String keyPrefix = keyPrefix(request.getOptions());
+        List<String> keys = texts.stream().map(text -> keyPrefix + ContentHasher.hash(text)).toList();
+        Map<String, float[]> found = new HashMap<>(memoryCache.getAllPresent(keys));
+        record("hit_memory", found.size());
+
+        // Texts missing from memory, de-duplicated; the value is the first position in the request
+        Map<String, Integer> missing = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!found.containsKey(keys.get(i))) {
+                missing.putIfAbsent(keys.get(i), i);
+            }
+        }
+
+        if (!missing.isEmpty() && persistentCache != null) {
+            Map<String, float[]> stored = loadPersisted(missing.keySet());
+            record("hit_persistent", stored.size());
+            memoryCache.putAll(stored);
+            found.putAll(stored);
+            missing.keySet().removeAll(stored.keySet());
+        }
+
+        if (!missing.isEmpty()) {
+            record("miss", missing.size());
+            Map<String, float[]> computed = embedMisses(missing, texts, request);
+            memoryCache.putAll(computed);
+            found.putAll(computed);
+            persist(keyPrefix, computed);
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            embeddings.add(new Embedding(VectorMath.toDoubleList(found.get(keys.get(i))), i));
+        }
+        sample.stop(meterRegistry.timer("rag.embedding.cache.latency"));
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        return embed(document.getContent());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private Map<String, float[]> embedMisses(Map<String, Integer> missing, List<String> texts, EmbeddingRequest request) {
+        List<String> missTexts = missing.values().stream().map(texts::get).toList();
+        EmbeddingResponse response = meterRegistry.timer("rag.embedding.model.latency", "model", modelName)
+                .record(() -> delegate.call(new EmbeddingRequest(missTexts, request.getOptions())));
+
+        Map<String, float[]> computed = new HashMap<>();
+        List<String> missKeys = new ArrayList<>(missing.keySet());
+        for (Embedding embedding : response.getResults()) {
+            computed.put(missKeys.get(embedding.getIndex()), VectorMath.toFloatArray(embedding.getOutput()));
+        }
+        return computed;
+    }
+
+    private Map<String, float[]> loadPersisted(Iterable<String> keys) {
+        try {
+            List<String> keyList = new ArrayList<>();
+            keys.forEach(keyList::add);
+            return persistentCache.findAll(keyList);
+        } catch (Exception e) {
+            // The persistent tier is an optimisation; fall through to the model
+            log.warn("Embedding cache lookup failed: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void persist(String keyPrefix, Map<String, float[]> computed) {
+        if (persistentCache == null) {
+            return;
+        }
+        String model = keyPrefix.substring(0, keyPrefix.length() - 1);
+        try {
+            persistExecutor.execute(() -> {
+                try {
+                    persistentCache.saveAll(model, computed);
+                } catch (Exception e) {
+                    log.warn("Failed to persist {} embeddings: {}", computed.size(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            record("persist_dropped", computed.size());
+        }
+    }
+
+    private void record(String result, int count) {
+        if (count > 0) {
+            meterRegistry.counter("rag.embedding.cache.lookups", "result", result).increment(count);
+        }
+    }
+
+    /**
+     * "model:" for requests with default options, so existing entries stay valid, and
+     * "model[options hash]:" for requests whose options differ from the defaults.
+     */
+    private String keyPrefix(EmbeddingOptions options) {
+        if (options == null || options == EmbeddingOptions.EMPTY) {
+            return modelName + ":";
+        }
+        String fingerprint;
+        try {
+            fingerprint = options.getClass().getName() + OPTIONS_MAPPER.writeValueAsString(options);
+        } catch (JsonProcessingException e) {
+            fingerprint = options.getClass().getName() + options;
+        }
+        return modelName + "[" + ContentHasher.hash(fingerprint).substring(0, 16) + "]:";
+    }
+}
@@ -0,0 +1,129 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.event.ChunksRemovedEvent;
+import com.aibusiness.rag.event.ChunksStoredEvent;
+import com.aibusiness.rag.event.RemoteChunksRemovedEvent;
+import com.aibusiness.rag.event.RemoteChunksStoredEvent;
+import com.aibusiness.rag.event.RemoteSourceChangedEvent;
+import com.aibusiness.rag.event.SourceChangedEvent;
+import com.aibusiness.rag.repository.ChangeFeedRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Carries vector_store changes between instances. The chunk and source events of this
+ * instance are appended to rag_change_feed; the changes of the other instances are read
+ * back on a schedule and re-published locally as {@link RemoteChunksStoredEvent},
+ * {@link RemoteChunksRemovedEvent} and {@link RemoteSourceChangedEvent}, so in-process
+ * state derived from vector_store (the in-memory index, the answer cache) follows
+ * ingests, deletions and expiries wherever they ran.
+ */
+@Service
+public class ChangeFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    private final ChangeFeedRepository changeFeedRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Duration lag;
+    private final Duration retention;
+    private final int batchSize;
+    private final String instanceId = UUID.randomUUID().toString();
+    private volatile long lastSeq;
+
+    public ChangeFeedService(ChangeFeedRepository changeFeedRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${rag.change-feed.enabled:true}") boolean enabled,
+                             @Value("${rag.change-feed.lag:PT1S}") Duration lag,
+                             @Value("${rag.change-feed.retention:PT1H}") Duration retention,
+                             @Value("${rag.change-feed.batch-size:500}") int batchSize) {
+        this.changeFeedRepository = changeFeedRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.lag = lag;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts reading at the current end of the feed: whatever happened before is already in
+     * vector_store, which the in-memory index loads from once the application is ready.
+     */
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            lastSeq = changeFeedRepository.lastSeq();
+        } catch (Exception e) {
+            // No feed table yet on a fresh database, so nothing to skip
+            log.debug("Could not read the change feed position: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onChunksStored(ChunksStoredEvent event) {
+        append(ChangeFeedRepository.STORED, null, null, event.documents().stream().map(Document::getId).toList());
+    }
+
+    @EventListener
+    public void onChunksRemoved(ChunksRemovedEvent event) {
+        append(ChangeFeedRepository.REMOVED, null, null, event.chunkIds());
+    }
+
+    @EventListener
+    public void onSourceChanged(SourceChangedEvent event) {
+        append(ChangeFeedRepository.SOURCE, event.userId(), event.source(), null);
+    }
+
+    @Scheduled(fixedDelayString = "${rag.change-feed.poll-interval-ms:2000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<ChangeFeedRepository.Change> changes;
+            do {
+                changes = changeFeedRepository.readAfter(lastSeq, instanceId, lag, batchSize);
+                for (ChangeFeedRepository.Change change : changes) {
+                    switch (change.kind()) {
+                        case ChangeFeedRepository.STORED -> eventPublisher.publishEvent(new RemoteChunksStoredEvent(change.chunkIds()));
+                        case ChangeFeedRepository.REMOVED -> eventPublisher.publishEvent(new RemoteChunksRemovedEvent(change.chunkIds()));
+                        case ChangeFeedRepository.SOURCE -> eventPublisher.publishEvent(new RemoteSourceChangedEvent(change.userId(), change.source()));
+                        default -> log.warn("Skipping change {} of unknown kind {}", change.seq(), change.kind());
+                    }
+                    lastSeq = change.seq();
+                }
+            } while (changes.size() == batchSize);
+            changeFeedRepository.deleteOlderThan(Instant.now().minus(retention));
+        } catch (Exception e) {
+            log.warn("Could not read the change feed: {}", e.getMessage());
+        }
+    }
+
+    private void append(String kind, Long userId, String source, List<String> chunkIds) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            changeFeedRepository.append(instanceId, kind, userId, source, chunkIds);
+        } catch (Exception e) {
+            // The change itself is stored; other instances catch up on restart or TTL expiry
+            log.warn("Could not append a {} change to the change feed: {}", kind, e.getMessage());
+        }
+    }
+}
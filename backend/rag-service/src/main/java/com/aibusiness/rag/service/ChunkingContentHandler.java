@@ -0,0 +1,89 @@
+package com.aibusiness.rag.service;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * SAX handler that receives Tika's XHTML events and hands text downstream in bounded
+ * segments, so the full document text is never held in memory at once.
+ * Segments are cut at the last paragraph break (or whitespace) before the limit.
+ */
+class ChunkingContentHandler extends DefaultHandler {
+
+    private static final Set<String> BLOCK_ELEMENTS = Set.of(
+            "p", "div", "li", "tr", "br", "h1", "h2", "h3", "h4", "h5", "h6", "pre", "blockquote", "table");
+
+    private final int segmentChars;
+    private final Consumer<String> segmentSink;
+    private final StringBuilder buffer;
+
+    ChunkingContentHandler(int segmentChars, Consumer<String> segmentSink) {
+        this.segmentChars = segmentChars;
+        this.segmentSink = segmentSink;
+        this.buffer = new StringBuilder(segmentChars + 1024);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        buffer.append(ch, start, length);
+        if (buffer.length() >= segmentChars) {
+            emitSegment();
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+        characters(ch, start, length);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        if (BLOCK_ELEMENTS.contains(localName)) {
+            buffer.append('\n');
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (BLOCK_ELEMENTS.contains(localName)) {
+            buffer.append('\n');
+        }
+    }
+
+    /**
+     * Emits whatever text is still buffered. Call once parsing has finished.
+     */
+    void flush() {
+        if (!buffer.toString().isBlank()) {
+            segmentSink.accept(buffer.toString());
+        }
+        buffer.setLength(0);
+    }
+
+    private void emitSegment() {
+        int cut = buffer.lastIndexOf("\n\n");
+        if (cut < segmentChars / 2) {
+            cut = lastWhitespace();
+        }
+        if (cut < segmentChars / 2) {
+            cut = buffer.length();
+        }
+        String segment = buffer.substring(0, cut);
+        buffer.delete(0, cut);
+        if (!segment.isBlank()) {
+            segmentSink.accept(segment);
+        }
+    }
+
+    private int lastWhitespace() {
+        for (int i = buffer.length() - 1; i >= 0; i--) {
+            if (Character.isWhitespace(buffer.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
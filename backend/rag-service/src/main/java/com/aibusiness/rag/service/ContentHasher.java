@@ -0,0 +1,45 @@
+package com.aibusiness.rag.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 fingerprints of chunk text, insensitive to whitespace and Unicode normalisation
+ * differences so that a re-crawled page with reflowed markup still hashes the same.
+ * Uploaded files are fingerprinted byte for byte.
+ */
+public final class ContentHasher {
+
+    private ContentHasher() {
+    }
+
+    public static String hash(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .replaceAll("\\s+", " ")
+                .trim();
+        return HexFormat.of().formatHex(sha256().digest(normalized.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String hash(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        try (DigestInputStream input = new DigestInputStream(content, digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.aibusiness.rag.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the prompt context from ranked chunks within a token budget. Tokens are counted
+ * with CL100K_BASE, the encoding TokenTextSplitter cuts chunks with. Chunks are taken in
+ * rank order after removing boilerplate lines and sentences already included from a
+ * higher-ranked chunk (neighbouring chunks overlap); a chunk that no longer fits is cut
+ * at a sentence boundary. Everything else keeps the chunk's layout: line breaks, blank
+ * lines and indentation stay, so lists, tables and code read as they were extracted.
+ */
+@Component
+public class ContextAssembler {
+
+    private static final String SEPARATOR = "\n---\n";
+
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n");
+    private static final Pattern SENTENCE_BREAK = Pattern.compile("(?<=[.!?])\\s+");
+    // Site chrome and legal footers that web and PDF extraction leave in chunks
+    private static final Pattern BOILERPLATE = Pattern.compile(
+            "(?i)\\b(all rights reserved|we use cookies|accept (all )?cookies|cookie (policy|settings|preferences)|" +
+                    "privacy policy|terms of (use|service)|click here|skip to (main )?content|back to top|" +
+                    "page \\d+( of \\d+)?|copyright( \\d{4})?)\\b|\\u00a9( ?\\d{4})?");
+    private static final Pattern NON_WORDS = Pattern.compile("[\\p{Punct}\\p{S}\\s]+");
+    // A line is only chrome if it is short and little besides the phrases is left, e.g. a
+    // company name after a copyright sign; a sentence that merely mentions a policy is content
+    private static final int MAX_BOILERPLATE_CHARS = 120;
+    private static final int MAX_BOILERPLATE_REMAINDER_WORDS = 3;
+
+    /**
+     * @param text        the context to place in the prompt
+     * @param chunks      the chunks that contributed to it, in order
+     * @param tokens      tokens in {@code text}
+     * @param tokensSaved tokens removed compared to joining every chunk unchanged
+     */
+    public record AssembledContext(String text, List<Document> chunks, int tokens, int tokensSaved) {}
+
+    private final Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    private final int maxTokens;
+    private final int minChunkTokens;
+
+    public ContextAssembler(@Value("${rag.context.max-tokens:3000}") int maxTokens,
+                            @Value("${rag.context.min-chunk-tokens:48}") int minChunkTokens) {
+        this.maxTokens = maxTokens;
+        this.minChunkTokens = minChunkTokens;
+    }
+
+    public AssembledContext assemble(List<Document> rankedChunks) {
+        int separatorTokens = encoding.countTokens(SEPARATOR);
+        Set<String> seenSentences = new HashSet<>();
+        List<String> parts = new ArrayList<>();
+        List<Document> used = new ArrayList<>();
+        int tokens = 0;
+
+        for (Document chunk : rankedChunks) {
+            int budget = maxTokens - tokens - (parts.isEmpty() ? 0 : separatorTokens);
+            if (budget < minChunkTokens) {
+                break;
+            }
+            StringBuilder part = new StringBuilder();
+            int partTokens = 0;
+            boolean blankLine = false;
+            lines:
+            for (String line : LINE_BREAK.split(chunk.getContent())) {
+                if (line.isBlank()) {
+                    // Paragraph break, written before the next kept line
+                    blankLine = !part.isEmpty();
+                    continue;
+                }
+                String indent = line.substring(0, line.length() - line.stripLeading().length());
+                boolean lineStarted = false;
+                for (String sentence : SENTENCE_BREAK.split(line.strip())) {
+                    String trimmed = sentence.strip();
+                    String key = normalize(trimmed);
+                    if (trimmed.isEmpty() || isBoilerplate(trimmed) || seenSentences.contains(key)) {
+                        continue;
+                    }
+                    String joiner = lineStarted ? " " : (part.isEmpty() ? "" : blankLine ? "\n\n" : "\n") + indent;
+                    int sentenceTokens = encoding.countTokens(joiner + trimmed);
+                    if (partTokens + sentenceTokens > budget) {
+                        break lines;
+                    }
+                    part.append(joiner).append(trimmed);
+                    partTokens += sentenceTokens;
+                    seenSentences.add(key);
+                    lineStarted = true;
+                    blankLine = false;
+                }
+            }
+            if (!part.isEmpty()) {
+                tokens += partTokens + (parts.isEmpty() ? 0 : separatorTokens);
+                parts.add(part.toString());
+                used.add(new Document(chunk.getId(), part.toString(), chunk.getMetadata()));
+            }
+        }
+
+        String text = String.join(SEPARATOR, parts);
+        int naiveTokens = encoding.countTokens(String.join(SEPARATOR, rankedChunks.stream().map(Document::getContent).toList()));
+        int assembledTokens = encoding.countTokens(text);
+        return new AssembledContext(text, used, assembledTokens, Math.max(0, naiveTokens - assembledTokens));
+    }
+
+    static boolean isBoilerplate(String sentence) {
+        if (sentence.length() > MAX_BOILERPLATE_CHARS || !BOILERPLATE.matcher(sentence).find()) {
+            return false;
+        }
+        String remainder = NON_WORDS.matcher(BOILERPLATE.matcher(sentence).replaceAll(" ")).replaceAll(" ").strip();
+        return remainder.isEmpty() || remainder.split(" ").length <= MAX_BOILERPLATE_REMAINDER_WORDS;
+    }
+
+    private static String normalize(String sentence) {
+        return sentence.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+}
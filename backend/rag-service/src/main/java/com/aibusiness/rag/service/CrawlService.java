@@ -0,0 +1,191 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.entity.CrawledUrl;
+import com.aibusiness.rag.exception.IngestionException;
+import com.aibusiness.rag.repository.CrawledUrlRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests URLs through a crawl registry (crawled_urls) so that re-crawls are cheap:
+ * the stored ETag / Last-Modified validators turn an unchanged page into a 304, a
+ * fingerprint of the extracted text catches servers that send no validators, and a
+ * changed page only re-embeds the chunks whose text is new. A scheduled refresher
+ * re-crawls registered URLs with bounded concurrency.
+ */
+@Service
+@RequiredArgsConstructor
+public class CrawlService {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlService.class);
+
+    public static final String CHANGED = "CHANGED";
+    public static final String UNCHANGED = "UNCHANGED";
+    public static final String NOT_MODIFIED = "NOT_MODIFIED";
+    public static final String FAILED = "FAILED";
+
+    /**
+     * @param status one of CHANGED, UNCHANGED (same text, re-fetched) or NOT_MODIFIED (304)
+     * @param ingest what was written for a CHANGED page, null otherwise
+     */
+    public record CrawlResult(String status, EmbeddingPipelineService.IngestResult ingest) {
+        public int chunksWritten() {
+            return ingest != null ? ingest.chunksWritten() : 0;
+        }
+    }
+
+    private final CrawledUrlRepository crawledUrlRepository;
+    private final IngestionService ingestionService;
+    private final EmbeddingPipelineService embeddingPipelineService;
+    private final ExecutorService crawlExecutor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    @Value("${rag.crawl.refresh-enabled:true}")
+    private boolean refreshEnabled;
+
+    @Value("${rag.crawl.refresh-interval:PT24H}")
+    private Duration refreshInterval;
+
+    @Value("${rag.crawl.refresh-batch-size:500}")
+    private int refreshBatchSize;
+
+    public CrawlResult crawl(String url, Long userId) {
+        return crawl(url, userId, written -> { });
+    }
+
+    /**
+     * Crawls a URL into the user's partition and registers it for periodic refreshes.
+     */
+    public CrawlResult crawl(String url, Long userId, IntConsumer progressListener) {
+        CrawledUrl entry = crawledUrlRepository.findByUrlAndUser(url, userId)
+                .orElseGet(() -> CrawledUrl.builder().url(url).userId(userId).build());
+        try {
+            return refresh(entry, progressListener);
+        } catch (Exception e) {
+            throw new IngestionException("Failed to crawl " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hands the due URLs to {@code crawlExecutor} and returns at once, so the shared
+     * scheduler thread is not held for the duration of the crawl. A poll that finds the
+     * previous batch still running does nothing, which keeps batches from overlapping.
+     * Due URLs are claimed atomically, so instances polling at the same time each get
+     * different URLs; a claimed URL that fails is retried after the next refresh interval.
+     */
+    @Scheduled(fixedDelayString = "${rag.crawl.poll-interval-ms:60000}")
+    public void refreshDue() {
+        if (!refreshEnabled || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        List<CrawledUrl> due;
+        try {
+            due = crawledUrlRepository.claimDue(ZonedDateTime.now().minus(refreshInterval), refreshBatchSize);
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+        if (due.isEmpty()) {
+            refreshing.set(false);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<String>> refreshes = due.stream()
+                .map(entry -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return refresh(entry, written -> { }).status();
+                    } catch (Exception e) {
+                        log.warn("Refresh of {} failed: {}", entry.getUrl(), e.getMessage());
+                        return FAILED;
+                    }
+                }, crawlExecutor))
+                .toList();
+        CompletableFuture.allOf(refreshes.toArray(new CompletableFuture[0])).whenComplete((ignored, e) -> {
+            refreshing.set(false);
+            log.info("Refreshed {} URLs in {} ms: {}", due.size(), System.currentTimeMillis() - start,
+                    refreshes.stream().map(CompletableFuture::join).collect(Collectors.groupingBy(s -> s, Collectors.counting())));
+        });
+    }
+
+    /**
+     * Ingests a page that the caller already fetched (e.g. the {@link SiteCrawler}) and
+     * records it in the registry, so it is refreshed like a page crawled on its own.
+     */
+    public CrawlResult ingestFetched(String url, Long userId, IngestionService.FetchedPage page, IntConsumer progressListener) {
+        CrawledUrl entry = crawledUrlRepository.findByUrlAndUser(url, userId)
+                .orElseGet(() -> CrawledUrl.builder().url(url).userId(userId).build());
+        entry.setLastCheckedAt(ZonedDateTime.now());
+        try {
+            return store(entry, page, progressListener);
+        } catch (Exception e) {
+            throw new IngestionException("Failed to ingest " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    private CrawlResult refresh(CrawledUrl entry, IntConsumer progressListener) throws Exception {
+        entry.setLastCheckedAt(ZonedDateTime.now());
+        IngestionService.FetchedPage page;
+        try {
+            page = ingestionService.fetchPage(entry.getUrl(), entry.getEtag(), entry.getLastModified());
+        } catch (Exception e) {
+            fail(entry, e);
+            throw e;
+        }
+        return store(entry, page, progressListener);
+    }
+
+    private CrawlResult store(CrawledUrl entry, IngestionService.FetchedPage page, IntConsumer progressListener) throws Exception {
+        try {
+            if (page.notModified()) {
+                return finish(entry, NOT_MODIFIED, null);
+            }
+
+            List<Document> chunks = ingestionService.processPage(entry.getUrl(), page);
+            String contentHash = ContentHasher.hash(chunks.stream().map(Document::getContent).collect(Collectors.joining("\n")));
+            // Validators are only kept once the content they describe has been stored
+            entry.setEtag(page.etag());
+            entry.setLastModified(page.lastModified());
+            if (contentHash.equals(entry.getContentHash())) {
+                return finish(entry, UNCHANGED, null);
+            }
+
+            EmbeddingPipelineService.BatchWriter writer =
+                    embeddingPipelineService.openWriter(entry.getUserId(), entry.getUrl(), progressListener);
+            writer.add(chunks);
+            EmbeddingPipelineService.IngestResult result = writer.finish();
+            entry.setContentHash(contentHash);
+            entry.setLastChangedAt(entry.getLastCheckedAt());
+            return finish(entry, CHANGED, result);
+        } catch (Exception e) {
+            fail(entry, e);
+            throw e;
+        }
+    }
+
+    private void fail(CrawledUrl entry, Exception e) {
+        entry.setLastStatus(FAILED);
+        entry.setLastError(e.getMessage());
+        crawledUrlRepository.save(entry);
+    }
+
+    private CrawlResult finish(CrawledUrl entry, String status, EmbeddingPipelineService.IngestResult result) {
+        entry.setLastStatus(status);
+        entry.setLastError(null);
+        crawledUrlRepository.save(entry);
+        return new CrawlResult(status, result);
+    }
+}
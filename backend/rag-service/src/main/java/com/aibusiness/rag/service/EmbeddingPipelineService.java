@@ -0,0 +1,272 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.event.ChunksRemovedEvent;
+import com.aibusiness.rag.event.ChunksStoredEvent;
+import com.aibusiness.rag.event.SourceChangedEvent;
+import com.aibusiness.rag.exception.IngestionException;
+import com.aibusiness.rag.repository.ParentChunkRepository;
+import com.aibusiness.rag.repository.VectorChunkRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Ingestion stage that embeds chunks in micro-batches on a bounded worker pool
+ * and writes them to pgvector with JDBC batch inserts.
+ */
+@Service
+@RequiredArgsConstructor
+public class EmbeddingPipelineService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingPipelineService.class);
+
+    private final EmbeddingModel embeddingModel;
+    private final VectorChunkRepository chunkRepository;
+    private final ParentChunkRepository parentChunkRepository;
+    private final ExecutorService embeddingExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${rag.ingest.batch-size:32}")
+    private int batchSize;
+
+    @Value("${rag.ingest.max-in-flight-batches:8}")
+    private int maxInFlightBatches;
+
+    @Value("${rag.ingest.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${rag.ingest.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    /**
+     * Embeds and stores all given chunks of a source. {@code userId} selects the owning
+     * user's partition; null writes to the shared corpus.
+     */
+    public IngestResult ingest(Long userId, String source, List<Document> documents) {
+        BatchWriter writer = openWriter(userId, source);
+        writer.add(documents);
+        return writer.finish();
+    }
+
+    /**
+     * Opens a writer that accepts chunks of one source incrementally. Callers block in
+     * {@link BatchWriter#add} once too many batches are in flight, so memory stays bounded
+     * for arbitrarily large sources.
+     */
+    public BatchWriter openWriter(Long userId, String source) {
+        return new BatchWriter(userId, source, written -> { });
+    }
+
+    /**
+     * Opens a writer that reports the running total of stored chunks after every batch.
+     * The listener is invoked from embedding worker threads.
+     */
+    public BatchWriter openWriter(Long userId, String source, IntConsumer progressListener) {
+        return new BatchWriter(userId, source, progressListener);
+    }
+
+    /**
+     * @param chunksWritten chunks that were embedded and stored
+     * @param chunksSkipped chunks whose content hash was already stored for the source
+     * @param chunksRemoved stored chunks that no longer appear in the source
+     */
+    public record IngestResult(int chunksWritten, int chunksSkipped, int chunksRemoved) {}
+
+    /**
+     * Writer for a single source of one partition. Every chunk is fingerprinted with {@link ContentHasher};
+     * chunks already stored for the source are not embedded again, and once the source has
+     * been fully read the chunks that disappeared from it are deleted.
+     * <p>
+     * Each writer takes a new ingest version and stamps it on what it writes. Pruning only
+     * touches rows of older versions, so when two ingests of one source overlap, the one
+     * that started later wins and neither deletes the other's fresh chunks.
+     */
+    public class BatchWriter {
+
+        private final Long userId;
+        private final String source;
+        private final IntConsumer progressListener;
+        private final long ingestVersion;
+        private final Set<String> storedHashes;
+        private final Set<String> currentHashes = new HashSet<>();
+        private final Set<String> currentParentIds = new HashSet<>();
+        private final Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        private final List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        private final AtomicInteger written = new AtomicInteger();
+        private int skipped;
+        private List<Document> pending = new ArrayList<>(batchSize);
+
+        private BatchWriter(Long userId, String source, IntConsumer progressListener) {
+            if (source == null || source.isBlank()) {
+                throw new IllegalArgumentException("A source id is required to ingest chunks");
+            }
+            this.userId = userId;
+            this.source = source;
+            this.progressListener = progressListener;
+            this.ingestVersion = chunkRepository.nextIngestVersion();
+            this.storedHashes = chunkRepository.findContentHashes(userId, source);
+        }
+
+        public void add(List<Document> documents) {
+            // Parents are stored (not embedded) before any child that references them
+            List<Document> parents = new ArrayList<>();
+            for (Document document : documents) {
+                if (StructureChunkingContentHandler.PARENT.equals(document.getMetadata().get(StructureChunkingContentHandler.CHUNK_TYPE))) {
+                    String parentId = scopedParentId(userId, document.getId());
+                    if (currentParentIds.add(parentId)) {
+                        parents.add(new Document(parentId, document.getContent(), document.getMetadata()));
+                    }
+                }
+            }
+            if (!parents.isEmpty()) {
+                parentChunkRepository.saveAll(userId, source, parents, ingestVersion);
+            }
+
+            for (Document document : documents) {
+                if (StructureChunkingContentHandler.PARENT.equals(document.getMetadata().get(StructureChunkingContentHandler.CHUNK_TYPE))) {
+                    continue;
+                }
+                Object parentId = document.getMetadata().get(StructureChunkingContentHandler.PARENT_ID);
+                String scopedParentId = parentId != null ? scopedParentId(userId, parentId.toString()) : null;
+                // A child moved to another section is re-written so its parent link stays valid
+                String hash = ContentHasher.hash(scopedParentId != null ? scopedParentId + "\n" + document.getContent() : document.getContent());
+                if (!currentHashes.add(hash) || storedHashes.contains(hash)) {
+                    skipped++;
+                    continue;
+                }
+                pending.add(withHash(document, userId, source, ingestVersion, hash, scopedParentId));
+                if (pending.size() >= batchSize) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Flushes the last partial batch, waits for every batch to be stored and then
+         * prunes chunks that are no longer part of the source.
+         */
+        public IngestResult finish() {
+            flush();
+            try {
+                CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                if (written.get() > 0) {
+                    eventPublisher.publishEvent(new SourceChangedEvent(userId, source));
+                }
+                throw new IngestionException("Ingestion failed after " + written.get() + " chunks were stored", e.getCause());
+            }
+            List<String> removedIds = chunkRepository.deleteStaleChunks(userId, source, currentHashes, ingestVersion);
+            parentChunkRepository.deleteStale(userId, source, currentParentIds, ingestVersion);
+            int removed = removedIds.size();
+            if (removed > 0) {
+                eventPublisher.publishEvent(new ChunksRemovedEvent(removedIds));
+            }
+            if (written.get() > 0 || removed > 0) {
+                eventPublisher.publishEvent(new SourceChangedEvent(userId, source));
+            }
+            log.info("Ingested source {} for user {}: {} chunks written, {} unchanged, {} removed",
+                    source, userId, written.get(), skipped, removed);
+            return new IngestResult(written.get(), skipped, removed);
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Document> batch = pending;
+            pending = new ArrayList<>(batchSize);
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IngestionException("Interrupted while waiting for an embedding worker", e);
+            }
+            batches.add(CompletableFuture
+                    .supplyAsync(() -> writeWithRetry(batch), embeddingExecutor)
+                    .whenComplete((count, ex) -> {
+                        inFlight.release();
+                        if (count != null) {
+                            progressListener.accept(written.addAndGet(count));
+                        }
+                    }));
+        }
+    }
+
+    private static Document withHash(Document document, Long userId, String source, long ingestVersion,
+                                     String hash, String parentId) {
+        // Splitters may share one metadata map across chunks, so never mutate it in place
+        Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+        if (userId != null) {
+            metadata.put("user_id", userId);
+        } else {
+            metadata.remove("user_id");
+        }
+        metadata.put("source", source);
+        metadata.put("content_hash", hash);
+        metadata.put("ingest_version", ingestVersion);
+        if (parentId != null) {
+            metadata.put(StructureChunkingContentHandler.PARENT_ID, parentId);
+        }
+        return new Document(document.getId(), document.getContent(), metadata);
+    }
+
+    /**
+     * Chunkers derive parent ids from the source name and content only; the stored id also
+     * covers the partition, so the same document ingested by two users gets two parents.
+     */
+    private static String scopedParentId(Long userId, String parentId) {
+        return UUID.nameUUIDFromBytes((userId + "/" + parentId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private int writeWithRetry(List<Document> batch) {
+        List<String> texts = batch.stream().map(Document::getContent).toList();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<float[]> embeddings = embeddingModel.embed(texts).stream()
+                        .map(VectorMath::toFloatArray)
+                        .toList();
+                chunkRepository.batchInsert(batch, embeddings);
+                eventPublisher.publishEvent(new ChunksStoredEvent(batch, embeddings));
+                return batch.size();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long backoff = retryBackoffMs * (1L << (attempt - 1));
+                log.warn("Embedding batch of {} chunks failed (attempt {}/{}), retrying in {} ms: {}",
+                        batch.size(), attempt, maxAttempts, backoff, e.getMessage());
+                sleep(backoff);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionException("Interrupted during retry backoff", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.aibusiness.rag.service;
+
+import java.util.Arrays;
+
+/**
+ * Full-precision arena: vectors packed into fixed-size pages of one primitive float[] each,
+ * so the arena grows without copying and without one object per vector.
+ */
+public class FloatVectorArena implements VectorArena {
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int INITIAL_PAGE_SLOTS = 16;
+
+    private final int dimensions;
+    private float[][] pages = new float[0][];
+
+    public FloatVectorArena(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public void set(int node, float[] vector) {
+        int page = node >>> PAGE_SHIFT;
+        int slot = node & (PAGE_SIZE - 1);
+        if (page >= pages.length) {
+            pages = Arrays.copyOf(pages, page + 1);
+            pages[page] = new float[INITIAL_PAGE_SLOTS * dimensions];
+        }
+        if ((slot + 1) * dimensions > pages[page].length) {
+            // The newest page grows geometrically, so a small index does not pay for a full page
+            pages[page] = Arrays.copyOf(pages[page], Math.min(PAGE_SIZE, 2 * (slot + 1)) * dimensions);
+        }
+        System.arraycopy(vector, 0, pages[page], slot * dimensions, dimensions);
+    }
+
+    @Override
+    public float[] get(int node) {
+        float[] vector = new float[dimensions];
+        System.arraycopy(pages[node >>> PAGE_SHIFT], (node & (PAGE_SIZE - 1)) * dimensions, vector, 0, dimensions);
+        return vector;
+    }
+
+    @Override
+    public NodeScorer scorer(float[] query) {
+        return node -> {
+            float[] page = pages[node >>> PAGE_SHIFT];
+            int offset = (node & (PAGE_SIZE - 1)) * dimensions;
+            float sum = 0;
+            for (int i = 0; i < dimensions; i++) {
+                sum += query[i] * page[offset + i];
+            }
+            return sum;
+        };
+    }
+
+    @Override
+    public int bytesPerVector() {
+        return dimensions * Float.BYTES;
+    }
+}
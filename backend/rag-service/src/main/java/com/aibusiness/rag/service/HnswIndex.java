@@ -0,0 +1,249 @@
+package com.aibusiness.rag.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Hierarchical Navigable Small World graph over unit-length vectors (cosine similarity as
+ * a dot product). Vectors are kept in a {@link VectorArena}, full precision or quantized.
+ * Nodes are addressed by dense int ids in insertion order; removal leaves a tombstone
+ * that keeps the graph connected but is never returned from a search.
+ */
+public class HnswIndex {
+
+    public record Result(int node, float score) {}
+
+    private final VectorArena arena;
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[][][] links = new int[0][][]; // node -> level -> [count, neighbour...]
+    private final BitSet deleted = new BitSet();
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(VectorArena arena, int dimensions, int m, int efConstruction) {
+        this.arena = arena;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    /**
+     * Inserts a unit-length vector and returns its node id.
+     */
+    public int add(float[] vector) {
+        return insert(vector, node -> arena.set(node, vector));
+    }
+
+    /**
+     * Inserts a vector whose int8 code is already known, e.g. read from the embedding_i8
+     * column. The code is stored as is; {@code vector}, its decoded form, only guides where
+     * the node is linked into the graph.
+     */
+    public int add(float[] vector, byte[] code) {
+        if (!(arena instanceof Int8VectorArena int8Arena)) {
+            throw new IllegalStateException("Quantized codes need an int8 arena");
+        }
+        return insert(vector, node -> int8Arena.setCode(node, code));
+    }
+
+    private int insert(float[] vector, IntConsumer store) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            int node = size++;
+            ensureCapacity(size);
+            store.accept(node);
+
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            links[node] = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                links[node][l] = new int[1 + (l == 0 ? maxM0 : m)];
+            }
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            VectorArena.NodeScorer scorer = arena.scorer(vector);
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(scorer, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Result> candidates = searchLayer(scorer, current, efConstruction, l, false);
+                for (Result neighbour : candidates.subList(0, Math.min(m, candidates.size()))) {
+                    connect(node, neighbour.node(), l);
+                    connect(neighbour.node(), node, l);
+                }
+                current = candidates.get(0).node();
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to k live nodes most similar to the unit-length query, best first.
+     */
+    public List<Result> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            VectorArena.NodeScorer scorer = arena.scorer(query);
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(scorer, current, l);
+            }
+            List<Result> results = searchLayer(scorer, current, Math.max(ef, k), 0, true);
+            return results.subList(0, Math.min(k, results.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(int node) {
+        lock.writeLock().lock();
+        try {
+            if (!deleted.get(node)) {
+                deleted.set(node);
+                deletedCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return size - deletedCount;
+    }
+
+    /**
+     * Fraction of nodes that are tombstones; a rebuild pays off once this grows large.
+     */
+    public double tombstoneRatio() {
+        return size == 0 ? 0 : (double) deletedCount / size;
+    }
+
+    public int bytesPerVector() {
+        return arena.bytesPerVector();
+    }
+
+    private int greedyClosest(VectorArena.NodeScorer scorer, int entry, int level) {
+        int current = entry;
+        float best = scorer.score(current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float score = scorer.score(neighbours[i]);
+                if (score > best) {
+                    best = score;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first beam search on one layer; returns up to ef results sorted best first.
+     */
+    private List<Result> searchLayer(VectorArena.NodeScorer scorer, int entry, int ef, int level, boolean skipDeleted) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Result> candidates = new PriorityQueue<>(Comparator.comparingDouble(Result::score).reversed());
+        PriorityQueue<Result> results = new PriorityQueue<>(Comparator.comparingDouble(Result::score));
+
+        Result start = new Result(entry, scorer.score(entry));
+        visited.set(entry);
+        candidates.add(start);
+        if (!skipDeleted || !deleted.get(entry)) {
+            results.add(start);
+        }
+
+        while (!candidates.isEmpty()) {
+            Result candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            int[] neighbours = links[candidate.node()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = scorer.score(neighbour);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Result next = new Result(neighbour, score);
+                    candidates.add(next);
+                    if (!skipDeleted || !deleted.get(neighbour)) {
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Result> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Result::score).reversed());
+        return sorted;
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int capacity = neighbours.length - 1;
+        if (neighbours[0] < capacity) {
+            neighbours[++neighbours[0]] = to;
+            return;
+        }
+        // Full: keep the closest `capacity` of the existing neighbours plus the new one
+        VectorArena.NodeScorer scorer = arena.scorer(arena.get(from));
+        List<Result> pool = new ArrayList<>(capacity + 1);
+        for (int i = 1; i <= capacity; i++) {
+            pool.add(new Result(neighbours[i], scorer.score(neighbours[i])));
+        }
+        pool.add(new Result(to, scorer.score(to)));
+        pool.sort(Comparator.comparingDouble(Result::score).reversed());
+        for (int i = 0; i < capacity; i++) {
+            neighbours[i + 1] = pool.get(i).node();
+        }
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes > links.length) {
+            links = Arrays.copyOf(links, Math.max(nodes, links.length * 2));
+        }
+    }
+}
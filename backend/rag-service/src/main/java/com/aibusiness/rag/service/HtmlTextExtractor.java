@@ -0,0 +1,133 @@
+package com.aibusiness.rag.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns crawled HTML into the text worth embedding: scripts, styles, forms and the page's
+ * own navigation, header and footer are dropped, the main content is preferred when the
+ * page marks it up, and block elements become line breaks so sentences of adjacent blocks
+ * don't run together. Headers and footers of an article or section (titles, bylines,
+ * notes) are content and stay.
+ */
+public final class HtmlTextExtractor {
+
+    private static final String NOISE = "script, style, noscript, template, iframe, object, embed, svg, canvas, " +
+            "form, button, select, aside, [hidden], [aria-hidden=true], [role=search], [role=dialog]";
+    // Site chrome when it belongs to the page itself rather than to a section of the content
+    private static final String PAGE_CHROME = "nav, header, footer, [role=navigation], [role=banner], [role=contentinfo]";
+    private static final String SECTIONING = "main, [role=main], article, section";
+    private static final String MAIN_CONTENT = "main, [role=main]";
+
+    private HtmlTextExtractor() {
+    }
+
+    public static boolean isHtml(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith(MediaType.TEXT_HTML_VALUE) || type.startsWith(MediaType.APPLICATION_XHTML_XML_VALUE);
+    }
+
+    /**
+     * Parses a fetched page. The charset of the Content-Type header wins; without one jsoup
+     * falls back to the page's meta tag. Relative links resolve against {@code url}.
+     */
+    public static Document parse(byte[] body, String contentType, String url) throws IOException {
+        String charset = null;
+        try {
+            Charset declared = contentType != null ? MediaType.parseMediaType(contentType).getCharset() : null;
+            charset = declared != null ? declared.name() : null;
+        } catch (RuntimeException e) {
+            // Malformed or unsupported header, let jsoup detect the charset
+        }
+        return Jsoup.parse(new ByteArrayInputStream(body), charset, url);
+    }
+
+    /**
+     * Absolute http(s) links of the page without fragments, in document order. Links marked
+     * rel=nofollow are left out.
+     */
+    public static List<String> links(Document page) {
+        Set<String> links = new LinkedHashSet<>();
+        for (Element anchor : page.select("a[href]:not([rel~=(?i)nofollow])")) {
+            String link = anchor.absUrl("href");
+            int fragment = link.indexOf('#');
+            if (fragment >= 0) {
+                link = link.substring(0, fragment);
+            }
+            String lower = link.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("http://") || lower.startsWith("https://")) {
+                links.add(link);
+            }
+        }
+        return List.copyOf(links);
+    }
+
+    /**
+     * The main content of the page with site chrome removed: its main element, else its
+     * only article, else the body, so a page listing several articles keeps all of them.
+     * Modifies {@code page}, so extract links first.
+     */
+    public static Element mainContent(Document page) {
+        page.select(NOISE).remove();
+        for (Element chrome : page.select(PAGE_CHROME)) {
+            if (chrome.parents().stream().noneMatch(parent -> parent.is(SECTIONING))) {
+                chrome.remove();
+            }
+        }
+        Element root = page.selectFirst(MAIN_CONTENT);
+        if (root != null) {
+            return root;
+        }
+        Elements articles = page.select("article");
+        return articles.size() == 1 ? articles.first() : page.body();
+    }
+
+    /**
+     * The cleaned text of the page. Modifies {@code page}, so extract links first.
+     */
+    public static String text(Document page) {
+        Element root = mainContent(page);
+        StringBuilder text = new StringBuilder();
+        NodeTraversor.traverse(new NodeVisitor() {
+            @Override
+            public void head(Node node, int depth) {
+                if (node instanceof TextNode textNode) {
+                    text.append(textNode.text());
+                } else if (node instanceof Element element && (element.isBlock() || element.normalName().equals("br"))) {
+                    text.append('\n');
+                }
+            }
+
+            @Override
+            public void tail(Node node, int depth) {
+                if (node instanceof Element element && element.isBlock()) {
+                    text.append('\n');
+                }
+            }
+        }, root);
+
+        return text.toString()
+                .replaceAll("[ \\t\\x0B\\f\\r\\u00a0]+", " ")
+                .replaceAll(" *\\n *", "\n")
+                .replaceAll("\\n{3,}", "\n\n")
+                .strip();
+    }
+}
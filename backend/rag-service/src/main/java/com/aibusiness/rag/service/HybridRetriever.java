@@ -0,0 +1,101 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.repository.VectorChunkRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Retrieves chunks with a pgvector similarity search and a Postgres full-text search in
+ * parallel and merges both rankings with reciprocal rank fusion (RRF). The lexical leg
+ * catches exact terms such as product codes and names that embeddings tend to blur.
+ * Both legs only read the partition of the given user (the shared corpus for null).
+ */
+@Service
+@RequiredArgsConstructor
+public class HybridRetriever {
+
+    private static final Logger log = LoggerFactory.getLogger(HybridRetriever.class);
+
+    private final VectorChunkRepository chunkRepository;
+    private final InMemoryVectorIndex inMemoryIndex;
+    private final PartitionIndexManager partitionIndexManager;
+    private final IndexTuning indexTuning;
+    private final ExecutorService retrievalExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rag.retrieval.hybrid-enabled:true}")
+    private boolean hybridEnabled;
+
+    @Value("${rag.retrieval.leg-depth:20}")
+    private int legDepth;
+
+    @Value("${rag.retrieval.rrf-k:60}")
+    private int rrfK;
+
+    /**
+     * @param efSearch HNSW search breadth for this query, null for the configured default
+     */
+    public List<Document> retrieve(Long userId, String query, float[] queryEmbedding, int topK, Integer efSearch) {
+        if (!hybridEnabled) {
+            return timed("vector", () -> vectorSearch(userId, queryEmbedding, topK, efSearch));
+        }
+
+        int depth = Math.max(legDepth, topK);
+        CompletableFuture<List<Document>> lexicalLeg = CompletableFuture
+                .supplyAsync(() -> timed("lexical", () -> chunkRepository.fullTextSearch(userId, query, depth)), retrievalExecutor)
+                .exceptionally(e -> {
+                    // Lexical recall is a bonus; never fail the query because of it
+                    log.warn("Full-text leg failed for query, using vector results only: {}", e.getMessage());
+                    return List.of();
+                });
+        List<Document> vectorResults = timed("vector", () -> vectorSearch(userId, queryEmbedding, depth, efSearch));
+
+        return fuse(List.of(vectorResults, lexicalLeg.join()), topK);
+    }
+
+    private List<Document> vectorSearch(Long userId, float[] queryEmbedding, int topK, Integer efSearch) {
+        if (inMemoryIndex.isReady()) {
+            // The in-memory graph has its own configured default; only an explicit request overrides it
+            return inMemoryIndex.search(userId, queryEmbedding, topK, efSearch != null ? indexTuning.efSearch(efSearch) : null);
+        }
+        return chunkRepository.similaritySearch(userId, queryEmbedding, topK, partitionIndexManager.isIndexed(userId),
+                indexTuning.efSearch(efSearch));
+    }
+
+    /**
+     * Reciprocal rank fusion: each list contributes 1 / (k + rank) for every chunk it contains.
+     */
+    private List<Document> fuse(List<List<Document>> rankings, int topK) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Document> documents = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                scores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+                documents.putIfAbsent(document.getId(), document);
+            }
+        }
+        return documents.values().stream()
+                .sorted(Comparator.comparingDouble((Document d) -> scores.get(d.getId())).reversed())
+                .limit(topK)
+                .toList();
+    }
+
+    private <T> T timed(String leg, Supplier<T> supplier) {
+        return meterRegistry.timer("rag.retrieval.leg.latency", "leg", leg).record(supplier);
+    }
+}
@@ -0,0 +1,268 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.event.ChunksRemovedEvent;
+import com.aibusiness.rag.event.ChunksStoredEvent;
+import com.aibusiness.rag.event.RemoteChunksRemovedEvent;
+import com.aibusiness.rag.event.RemoteChunksStoredEvent;
+import com.aibusiness.rag.repository.VectorChunkRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional in-process ANN index. pgvector stays the source of truth: the graph is built
+ * from vector_store at startup and kept current from the ingestion pipeline's events, and
+ * from the {@link ChangeFeedService} for changes made by other instances, so queries can
+ * be answered without a database round trip. Until the initial load has
+ * finished, {@link #isReady()} is false and callers should query pgvector instead.
+ * <p>
+ * Every user partition (and the shared corpus) gets a graph of its own, so a search
+ * never visits another user's chunks and its cost depends only on the partition size.
+ * <p>
+ * With {@code rag.index.in-memory.quantization: int8} the graphs hold one byte per
+ * dimension instead of a float, read from the backfilled embedding_i8 column, and the
+ * best {@code rerank-depth} candidates are re-ranked on the full-precision embeddings.
+ */
+@Component
+public class InMemoryVectorIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryVectorIndex.class);
+    private static final String SHARED_PARTITION = "shared";
+
+    private record Candidate(Document document, double score) {}
+
+    private record NodeRef(Partition partition, int node) {}
+
+    private static final class Partition {
+        private final HnswIndex index;
+        private final Map<Integer, Document> documentsByNode = new ConcurrentHashMap<>();
+
+        private Partition(HnswIndex index) {
+            this.index = index;
+        }
+    }
+
+    private final VectorChunkRepository chunkRepository;
+    private final QuantizationService quantizationService;
+    private final boolean enabled;
+    private final boolean quantized;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int rerankDepth;
+    private volatile ScalarQuantizer quantizer; // null when the graphs hold full-precision vectors
+    private volatile boolean loading; // set once load() has chosen the vector representation
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final Map<String, NodeRef> nodesById = new ConcurrentHashMap<>();
+    // Chunks removed while the initial load is still streaming rows that may include them
+    private final Set<String> removedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public InMemoryVectorIndex(VectorChunkRepository chunkRepository,
+                               QuantizationService quantizationService,
+                               MeterRegistry meterRegistry,
+                               @Value("${rag.index.in-memory.enabled:false}") boolean enabled,
+                               @Value("${spring.ai.vectorstore.pgvector.dimensions:768}") int dimensions,
+                               @Value("${rag.index.in-memory.m:16}") int m,
+                               @Value("${rag.index.in-memory.ef-construction:200}") int efConstruction,
+                               @Value("${rag.index.in-memory.ef-search:64}") int efSearch,
+                               @Value("${rag.index.in-memory.quantization:none}") String quantization,
+                               @Value("${rag.index.in-memory.rerank-depth:50}") int rerankDepth) {
+        this.chunkRepository = chunkRepository;
+        this.quantizationService = quantizationService;
+        this.enabled = enabled;
+        this.quantized = "int8".equalsIgnoreCase(quantization);
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.rerankDepth = rerankDepth;
+        if (enabled) {
+            Gauge.builder("rag.index.in_memory.size", () -> partitions.values().stream()
+                    .mapToInt(partition -> partition.index.size()).sum()).register(meterRegistry);
+            Gauge.builder("rag.index.in_memory.partitions", partitions::size).register(meterRegistry);
+            Gauge.builder("rag.index.in_memory.bytes_per_vector", () -> quantizer != null ? dimensions : dimensions * Float.BYTES)
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                if (quantized) {
+                    quantizer = quantizationService.quantizer().orElse(null);
+                    if (quantizer == null) {
+                        log.warn("int8 quantization requested but no quantizer has been fitted yet; " +
+                                "run the quantization backfill. Loading full-precision vectors instead");
+                    }
+                }
+                loading = true;
+                if (quantizer != null) {
+                    chunkRepository.forEachQuantizedChunk(
+                            embedding -> quantizer.encode(VectorMath.normalize(embedding)),
+                            (document, code) -> {
+                                if (!removedDuringLoad.contains(document.getId())) {
+                                    add(document, quantizer.decode(code), code);
+                                }
+                            });
+                } else {
+                    chunkRepository.forEachChunk((document, embedding) -> {
+                        if (!removedDuringLoad.contains(document.getId())) {
+                            add(document, VectorMath.normalize(embedding), null);
+                        }
+                    });
+                }
+                removedDuringLoad.clear();
+                ready = true;
+                log.info("In-memory vector index loaded {} chunks in {} partitions at {} bytes per vector in {} ms",
+                        nodesById.size(), partitions.size(), quantizer != null ? dimensions : dimensions * Float.BYTES,
+                        System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("Failed to build in-memory vector index, queries stay on pgvector: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Returns up to topK chunks of the user's partition (the shared corpus for null) most
+     * similar to the query embedding. Like PgVectorStore, each result carries its cosine
+     * distance in the "distance" metadata key. {@code efSearch} overrides the configured
+     * search breadth when not null.
+     */
+    public List<Document> search(Long userId, float[] queryEmbedding, int topK, Integer efSearch) {
+        Partition partition = partitions.get(userId != null ? userId.toString() : SHARED_PARTITION);
+        if (partition == null) {
+            return List.of();
+        }
+        boolean rerank = quantizer != null;
+        List<Candidate> candidates = partition.index.search(VectorMath.normalize(queryEmbedding),
+                        rerank ? Math.max(topK, rerankDepth) : topK, efSearch != null ? efSearch : this.efSearch).stream()
+                .filter(result -> partition.documentsByNode.containsKey(result.node()))
+                .map(result -> new Candidate(partition.documentsByNode.get(result.node()), result.score()))
+                .toList();
+        if (rerank) {
+            candidates = rerank(queryEmbedding, candidates);
+        }
+        return candidates.stream()
+                .limit(topK)
+                .map(candidate -> {
+                    Document stored = candidate.document();
+                    Map<String, Object> metadata = new HashMap<>(stored.getMetadata());
+                    metadata.put("distance", 1 - candidate.score());
+                    return new Document(stored.getId(), stored.getContent(), metadata);
+                })
+                .toList();
+    }
+
+    /**
+     * Re-scores quantized candidates against the full-precision embeddings in pgvector.
+     */
+    private List<Candidate> rerank(float[] queryEmbedding, List<Candidate> candidates) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        try {
+            Map<String, Double> exact = chunkRepository.similarities(
+                    candidates.stream().map(candidate -> candidate.document().getId()).toList(), queryEmbedding);
+            return candidates.stream()
+                    .map(candidate -> new Candidate(candidate.document(),
+                            exact.getOrDefault(candidate.document().getId(), candidate.score())))
+                    .sorted(Comparator.comparingDouble(Candidate::score).reversed())
+                    .toList();
+        } catch (Exception e) {
+            // Approximate order is still a usable answer
+            log.warn("Full-precision re-rank failed, using int8 scores: {}", e.getMessage());
+            return candidates;
+        }
+    }
+
+    @EventListener
+    public void onChunksStored(ChunksStoredEvent event) {
+        if (!enabled || !loading) {
+            // Not loading yet: the initial load will read these chunks from vector_store
+            return;
+        }
+        for (int i = 0; i < event.documents().size(); i++) {
+            add(event.documents().get(i), VectorMath.normalize(event.embeddings().get(i)), null);
+        }
+    }
+
+    @EventListener
+    public void onRemoteChunksStored(RemoteChunksStoredEvent event) {
+        if (!enabled || !loading) {
+            return;
+        }
+        chunkRepository.forEachChunk(event.chunkIds(),
+                (document, embedding) -> add(document, VectorMath.normalize(embedding), null));
+    }
+
+    @EventListener
+    public void onChunksRemoved(ChunksRemovedEvent event) {
+        remove(event.chunkIds());
+    }
+
+    @EventListener
+    public void onRemoteChunksRemoved(RemoteChunksRemovedEvent event) {
+        remove(event.chunkIds());
+    }
+
+    private void remove(List<String> chunkIds) {
+        if (!enabled) {
+            return;
+        }
+        for (String chunkId : chunkIds) {
+            if (!ready) {
+                removedDuringLoad.add(chunkId);
+            }
+            NodeRef ref = nodesById.remove(chunkId);
+            if (ref != null) {
+                ref.partition().index.remove(ref.node());
+                ref.partition().documentsByNode.remove(ref.node());
+            }
+        }
+    }
+
+    /**
+     * {@code code}, when not null, is the stored int8 form of {@code unitVector}; it goes
+     * into the arena unchanged instead of being quantized a second time.
+     */
+    private void add(Document document, float[] unitVector, byte[] code) {
+        nodesById.computeIfAbsent(document.getId(), id -> {
+            Partition partition = partitions.computeIfAbsent(partitionKey(document), key -> new Partition(new HnswIndex(
+                    quantizer != null ? new Int8VectorArena(quantizer) : new FloatVectorArena(dimensions),
+                    dimensions, m, efConstruction)));
+            int node = code != null ? partition.index.add(unitVector, code) : partition.index.add(unitVector);
+            partition.documentsByNode.put(node, document);
+            return new NodeRef(partition, node);
+        });
+    }
+
+    private static String partitionKey(Document document) {
+        Object userId = document.getMetadata().get("user_id");
+        return userId != null ? userId.toString() : SHARED_PARTITION;
+    }
+}
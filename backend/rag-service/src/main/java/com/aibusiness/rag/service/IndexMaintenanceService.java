@@ -0,0 +1,234 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.dto.IndexMaintenanceResponse;
+import com.aibusiness.rag.exception.MaintenanceInProgressException;
+import com.aibusiness.rag.repository.IndexMaintenanceRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps vector_store and its indexes in shape. Reports dead tuples and index bloat, runs
+ * VACUUM and REINDEX CONCURRENTLY on a schedule when they cross their thresholds, and
+ * rebuilds the table with new HNSW parameters on request. One operation runs at a time
+ * across all instances: operations run on the maintenance executor under the maintenance
+ * advisory lock, and requests made while the lock is held are refused.
+ */
+@Service
+public class IndexMaintenanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexMaintenanceService.class);
+
+    private static final String VACUUM = "vacuum";
+    private static final String REINDEX = "reindex";
+    private static final String REBUILD = "rebuild";
+
+    private final IndexMaintenanceRepository maintenanceRepository;
+    private final PartitionIndexManager partitionIndexManager;
+    private final IndexTuning indexTuning;
+    private final ExecutorService maintenanceExecutor;
+    private final boolean enabled;
+    private final double vacuumDeadRatio;
+    private final double reindexBloatRatio;
+    private final String rebuildMaintenanceWorkMem;
+
+    private final AtomicReference<String> running = new AtomicReference<>();
+    private volatile String lastOperation;
+    private volatile Instant lastOperationAt;
+    private volatile String lastError;
+    // Refreshed on every report so the gauges never query the database themselves
+    private volatile double deadTupleRatio;
+    private volatile double maxBloatRatio;
+
+    public IndexMaintenanceService(IndexMaintenanceRepository maintenanceRepository,
+                                   PartitionIndexManager partitionIndexManager,
+                                   IndexTuning indexTuning,
+                                   ExecutorService maintenanceExecutor,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${rag.maintenance.enabled:true}") boolean enabled,
+                                   @Value("${rag.maintenance.vacuum-dead-ratio:0.1}") double vacuumDeadRatio,
+                                   @Value("${rag.maintenance.reindex-bloat-ratio:0.3}") double reindexBloatRatio,
+                                   @Value("${rag.maintenance.rebuild-maintenance-work-mem:}") String rebuildMaintenanceWorkMem) {
+        this.maintenanceRepository = maintenanceRepository;
+        this.partitionIndexManager = partitionIndexManager;
+        this.indexTuning = indexTuning;
+        this.maintenanceExecutor = maintenanceExecutor;
+        this.enabled = enabled;
+        this.vacuumDeadRatio = vacuumDeadRatio;
+        this.reindexBloatRatio = reindexBloatRatio;
+        this.rebuildMaintenanceWorkMem = StringUtils.hasText(rebuildMaintenanceWorkMem) ? rebuildMaintenanceWorkMem : null;
+        Gauge.builder("rag.index.dead_tuple_ratio", () -> deadTupleRatio).register(meterRegistry);
+        Gauge.builder("rag.index.max_bloat_ratio", () -> maxBloatRatio).register(meterRegistry);
+    }
+
+    /**
+     * Current table and index statistics. Indexes seen for the first time get their current
+     * size per row recorded as baseline, so bloat is measured from then on.
+     */
+    public IndexMaintenanceResponse report() {
+        IndexMaintenanceRepository.TableStats table = maintenanceRepository.tableStats();
+        long tuples = table.liveTuples() + table.deadTuples();
+        double deadRatio = tuples > 0 ? (double) table.deadTuples() / tuples : 0;
+
+        List<IndexMaintenanceResponse.Index> indexes = new ArrayList<>();
+        double maxBloat = 0;
+        for (IndexMaintenanceRepository.IndexStats index : maintenanceRepository.indexStats(table.liveTuples())) {
+            double baseline = index.baselineBytesPerRow() != null ? index.baselineBytesPerRow() : index.bytesPerRow();
+            if (index.baselineBytesPerRow() == null && index.valid() && index.indexedRows() > 0) {
+                maintenanceRepository.saveBaseline(index.name(), baseline);
+            }
+            double bloat = bloatRatio(index.bytesPerRow(), baseline);
+            maxBloat = Math.max(maxBloat, bloat);
+            indexes.add(new IndexMaintenanceResponse.Index(index.name(), index.method(), index.valid(), index.bytes(),
+                    index.indexedRows(), index.bytesPerRow(), baseline, bloat, index.scans(), index.predicate()));
+        }
+        deadTupleRatio = deadRatio;
+        maxBloatRatio = maxBloat;
+        return new IndexMaintenanceResponse(table.liveTuples(), table.deadTuples(), deadRatio, table.totalBytes(),
+                table.lastVacuum(), table.lastAnalyze(), indexTuning.getEfSearch(), running.get(),
+                lastOperation, lastOperationAt, lastError, indexes);
+    }
+
+    public IndexMaintenanceResponse startVacuum() {
+        return start(VACUUM, maintenanceRepository::vacuum);
+    }
+
+    public IndexMaintenanceResponse startReindex(String indexName) {
+        if (!maintenanceRepository.indexNames().contains(indexName)) {
+            throw new IllegalArgumentException("Unknown vector_store index: " + indexName);
+        }
+        return start(REINDEX + " " + indexName, () -> reindex(indexName));
+    }
+
+    /**
+     * Rebuilds vector_store behind a shadow table with new HNSW build parameters. Higher
+     * {@code m} and {@code efConstruction} raise recall at the cost of build time and index size.
+     */
+    public IndexMaintenanceResponse startRebuild(int m, int efConstruction) {
+        if (m < 2 || m > 100) {
+            throw new IllegalArgumentException("m must be between 2 and 100");
+        }
+        if (efConstruction < 2 * m || efConstruction > 1000) {
+            throw new IllegalArgumentException("ef_construction must be between 2 * m and 1000");
+        }
+        return start(REBUILD + " m=" + m + " ef_construction=" + efConstruction, () -> {
+            List<String> rebuilt = maintenanceRepository.rebuild(m, efConstruction, rebuildMaintenanceWorkMem);
+            maintenanceRepository.vacuum(); // The new table has no statistics yet
+            resetBaselines(rebuilt);
+            partitionIndexManager.loadExistingIndexes();
+        });
+    }
+
+    /**
+     * Vacuums when the dead tuple ratio crosses its threshold, then reindexes every index
+     * whose bloat does. Skipped while another operation is running, here or on another
+     * instance (the cron fires on all of them; the first to take the lock does the work).
+     * The work is handed to the maintenance executor so a long VACUUM or REINDEX doesn't
+     * hold a scheduler thread.
+     */
+    @Scheduled(cron = "${rag.maintenance.cron:0 0 3 * * *}")
+    public void runScheduledMaintenance() {
+        if (!enabled || !running.compareAndSet(null, "scheduled")) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                boolean ran = maintenanceRepository.runLocked(false, () -> {
+                    if (report().getDeadTupleRatio() >= vacuumDeadRatio) {
+                        run(VACUUM, maintenanceRepository::vacuum);
+                    }
+                    for (IndexMaintenanceResponse.Index index : report().getIndexes()) {
+                        if (index.isValid() && index.getBloatRatio() >= reindexBloatRatio) {
+                            run(REINDEX + " " + index.getName(), () -> reindex(index.getName()));
+                        }
+                    }
+                });
+                if (!ran) {
+                    log.info("Skipping scheduled index maintenance, another instance holds the maintenance lock");
+                }
+            } catch (Exception e) {
+                log.warn("Scheduled index maintenance could not read statistics: {}", e.getMessage());
+            } finally {
+                running.set(null);
+            }
+        }, maintenanceExecutor);
+    }
+
+    /**
+     * Starts an operation on the maintenance executor, or refuses it with a
+     * {@link MaintenanceInProgressException} while another one is running here or holds the
+     * maintenance lock elsewhere. Should another instance take the lock in between, the
+     * operation fails with that as its error.
+     */
+    private IndexMaintenanceResponse start(String operation, Runnable task) {
+        String current = running.compareAndExchange(null, operation);
+        if (current != null) {
+            throw new MaintenanceInProgressException("Index maintenance [" + current + "] is already running");
+        }
+        try {
+            if (maintenanceRepository.isLocked()) {
+                throw new MaintenanceInProgressException("Index maintenance is already running on another instance");
+            }
+        } catch (RuntimeException e) {
+            running.set(null);
+            throw e;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                run(operation, () -> {
+                    if (!maintenanceRepository.runLocked(false, task)) {
+                        throw new IllegalStateException("Index maintenance is already running on another instance");
+                    }
+                });
+            } finally {
+                running.set(null);
+            }
+        }, maintenanceExecutor);
+        return report();
+    }
+
+    private void run(String operation, Runnable task) {
+        long start = System.currentTimeMillis();
+        try {
+            task.run();
+            lastError = null;
+            log.info("Index maintenance [{}] finished in {} ms", operation, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("Index maintenance [{}] failed: {}", operation, e.getMessage(), e);
+        } finally {
+            lastOperation = operation;
+            lastOperationAt = Instant.now();
+        }
+    }
+
+    private void reindex(String indexName) {
+        maintenanceRepository.reindex(indexName);
+        resetBaselines(List.of(indexName));
+    }
+
+    private void resetBaselines(List<String> indexNames) {
+        IndexMaintenanceRepository.TableStats table = maintenanceRepository.tableStats();
+        for (IndexMaintenanceRepository.IndexStats index : maintenanceRepository.indexStats(table.liveTuples())) {
+            if (indexNames.contains(index.name()) && index.indexedRows() > 0) {
+                maintenanceRepository.saveBaseline(index.name(), index.bytesPerRow());
+            }
+        }
+    }
+
+    private static double bloatRatio(double bytesPerRow, double baseline) {
+        return baseline > 0 ? Math.max(0, bytesPerRow / baseline - 1) : 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.aibusiness.rag.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Query-time HNSW setting for searches served by pgvector. ef_search trades latency for
+ * recall: the graph walk keeps this many candidates. The default can be changed at
+ * runtime through the admin API and overridden per query.
+ */
+@Component
+public class IndexTuning {
+
+    private static final int MAX_EF_SEARCH = 1000; // pgvector's upper bound for hnsw.ef_search
+
+    private volatile int efSearch;
+
+    public IndexTuning(@Value("${rag.index.ef-search:0}") int efSearch) {
+        setEfSearch(efSearch);
+    }
+
+    /**
+     * The default ef_search, 0 when searches use the server's hnsw.ef_search.
+     */
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * Changes the default for subsequent searches; 0 goes back to the server setting.
+     */
+    public void setEfSearch(int efSearch) {
+        if (efSearch != 0) {
+            validate(efSearch);
+        }
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * The ef_search to use for one query: the requested value if given, else the default.
+     */
+    public int efSearch(Integer requested) {
+        if (requested == null) {
+            return efSearch;
+        }
+        validate(requested);
+        return requested;
+    }
+
+    private static void validate(int efSearch) {
+        if (efSearch < 1 || efSearch > MAX_EF_SEARCH) {
+            throw new IllegalArgumentException("ef_search must be between 1 and " + MAX_EF_SEARCH);
+        }
+    }
+}
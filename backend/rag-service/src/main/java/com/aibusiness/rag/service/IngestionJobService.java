@@ -0,0 +1,297 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.dto.IngestJobResponse;
+import com.aibusiness.rag.dto.IngestSiteRequest;
+import com.aibusiness.rag.entity.IngestionJob;
+import com.aibusiness.rag.exception.IngestionJobNotFoundException;
+import com.aibusiness.rag.repository.IngestionJobRepository;
+import com.aibusiness.rag.repository.IngestionUploadRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntConsumer;
+
+/**
+ * Job-based ingestion: submissions are persisted to the ingestion_jobs table and a
+ * small dedicated executor works through them, streaming progress to SSE subscribers.
+ * <p>
+ * A claimed job records this instance as its owner, and the owner refreshes a heartbeat
+ * while the job runs. Only jobs whose heartbeat lapsed, i.e. whose owner died, are
+ * re-queued; a slow job that is still running is never started a second time.
+ * <p>
+ * Uploaded files are stored with their job in the database rather than on the receiving
+ * instance's disk, since any instance may claim the job. The claiming worker copies the
+ * file to its local spool directory for Tika and removes it when the job ends.
+ */
+@Service
+@RequiredArgsConstructor
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobService.class);
+
+    private static final String PENDING = "PENDING";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+
+    private final IngestionJobRepository jobRepository;
+    private final IngestionUploadRepository uploadRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestionService ingestionService;
+    private final EmbeddingPipelineService embeddingPipelineService;
+    private final CrawlService crawlService;
+    private final SiteCrawler siteCrawler;
+    private final ExecutorService ingestionJobExecutor;
+
+    private final Map<UUID, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Value("${rag.jobs.workers:2}")
+    private int workers;
+
+    @Value("${rag.jobs.spool-dir:${java.io.tmpdir}/rag-ingest}")
+    private String spoolDir;
+
+    @Value("${rag.jobs.stale-after-ms:120000}")
+    private long staleAfterMs;
+
+    @Value("${rag.jobs.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    public IngestJobResponse submitFile(MultipartFile file, Long userId, String sourceId) throws IOException {
+        String filename = Path.of(file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload")
+                .getFileName().toString();
+        // The multipart temp file is gone once the request ends; hash and store the upload from a local copy
+        Path target = Path.of(spoolDir, UUID.randomUUID().toString(), filename);
+        Files.createDirectories(target.getParent());
+        IngestionJob job;
+        try {
+            file.transferTo(target);
+            String source = ingestionService.fileSourceId(sourceId, filename, new FileSystemResource(target));
+            // The job becomes claimable only together with its file
+            job = transactionTemplate.execute(status -> {
+                IngestionJob saved = jobRepository.saveAndFlush(IngestionJob.builder()
+                        .sourceType("FILE")
+                        .source(source)
+                        .userId(userId)
+                        .filename(filename)
+                        .status(PENDING)
+                        .build());
+                try {
+                    uploadRepository.save(saved.getId(), target);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return saved;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            deleteSpool(target.getParent());
+        }
+        dispatchPendingJobs();
+        return IngestJobResponse.from(job);
+    }
+
+    public IngestJobResponse submitUrl(String url, Long userId) {
+        IngestionJob job = jobRepository.save(IngestionJob.builder()
+                .sourceType("URL")
+                .source(url)
+                .userId(userId)
+                .status(PENDING)
+                .build());
+        dispatchPendingJobs();
+        return IngestJobResponse.from(job);
+    }
+
+    public IngestJobResponse submitSite(IngestSiteRequest request) {
+        if (request.getUrl() == null || request.getUrl().isBlank()) {
+            throw new IllegalArgumentException("url is required");
+        }
+        IngestionJob job = jobRepository.save(IngestionJob.builder()
+                .sourceType("SITE")
+                .source(request.getUrl())
+                .userId(request.getUserId())
+                .maxDepth(request.getMaxDepth())
+                .maxPages(request.getMaxPages())
+                .status(PENDING)
+                .build());
+        dispatchPendingJobs();
+        return IngestJobResponse.from(job);
+    }
+
+    public IngestJobResponse getJob(UUID jobId) {
+        return IngestJobResponse.from(findJob(jobId));
+    }
+
+    public SseEmitter subscribe(UUID jobId) {
+        findJob(jobId);
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        List<SseEmitter> jobSubscribers = subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        jobSubscribers.add(emitter);
+        emitter.onCompletion(() -> jobSubscribers.remove(emitter));
+        emitter.onTimeout(() -> jobSubscribers.remove(emitter));
+        emitter.onError(e -> jobSubscribers.remove(emitter));
+
+        // Read the snapshot after registering so a job finishing in between is not missed
+        IngestionJob job = findJob(jobId);
+        sendEvent(emitter, "status", IngestJobResponse.from(job));
+        if (isTerminal(job.getStatus())) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Claims as many pending jobs as there are free workers. Runs on a schedule so jobs
+     * left behind by a restart (or submitted to another instance) are picked up too.
+     */
+    @Scheduled(fixedDelayString = "${rag.jobs.poll-interval-ms:2000}")
+    public synchronized void dispatchPendingJobs() {
+        int requeued = jobRepository.requeueStale(ZonedDateTime.now().minus(Duration.ofMillis(staleAfterMs)), instanceId);
+        if (requeued > 0) {
+            log.warn("Re-queued {} ingestion jobs whose owner stopped sending heartbeats", requeued);
+        }
+
+        int free = workers - inFlight.size();
+        if (free <= 0) {
+            return;
+        }
+        for (IngestionJob job : jobRepository.findByStatusOrderByCreatedAtAsc(PENDING, PageRequest.of(0, free))) {
+            if (jobRepository.claim(job.getId(), instanceId) == 1) {
+                inFlight.add(job.getId());
+                ingestionJobExecutor.execute(() -> runJob(job.getId()));
+            }
+        }
+    }
+
+    /**
+     * Tells other instances that the jobs running here are alive. Must run well within
+     * {@code rag.jobs.stale-after-ms}.
+     */
+    @Scheduled(fixedDelayString = "${rag.jobs.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        Set<UUID> running = Set.copyOf(inFlight);
+        if (running.isEmpty()) {
+            return;
+        }
+        int owned = jobRepository.heartbeat(running, instanceId);
+        if (owned < running.size()) {
+            log.warn("{} of {} running ingestion jobs were re-queued by another instance", running.size() - owned, running.size());
+        }
+    }
+
+    private void runJob(UUID jobId) {
+        IngestionJob job = null;
+        Path spool = Path.of(spoolDir, jobId.toString());
+        try {
+            job = findJob(jobId);
+            publish(jobId, "status", IngestJobResponse.from(job));
+
+            IntConsumer progressListener = chunks -> {
+                jobRepository.updateProgress(jobId, chunks);
+                publish(jobId, "progress", Map.of("job_id", jobId, "chunks_processed", chunks));
+            };
+            int chunksWritten;
+            if ("URL".equals(job.getSourceType())) {
+                chunksWritten = crawlService.crawl(job.getSource(), job.getUserId(), progressListener).chunksWritten();
+            } else if ("SITE".equals(job.getSourceType())) {
+                chunksWritten = siteCrawler.crawl(job.getSource(), job.getUserId(), job.getMaxDepth(), job.getMaxPages(),
+                        progressListener).chunksWritten();
+            } else {
+                EmbeddingPipelineService.BatchWriter writer =
+                        embeddingPipelineService.openWriter(job.getUserId(), job.getSource(), progressListener);
+                Files.createDirectories(spool);
+                Path file = spool.resolve(job.getFilename());
+                uploadRepository.copyTo(jobId, file);
+                ingestionService.processFile(file, writer::add);
+                chunksWritten = writer.finish().chunksWritten();
+            }
+
+            completeJob(jobId, COMPLETED, chunksWritten, null);
+        } catch (Exception e) {
+            log.error("Ingestion job {} failed: {}", jobId, e.getMessage(), e);
+            completeJob(jobId, FAILED, null, e.getMessage());
+        } finally {
+            if (job != null && "FILE".equals(job.getSourceType())) {
+                deleteSpool(spool);
+            }
+            inFlight.remove(jobId);
+            dispatchPendingJobs();
+        }
+    }
+
+    private void completeJob(UUID jobId, String status, Integer chunks, String error) {
+        IngestionJob job = findJob(jobId);
+        job.setStatus(status);
+        if (chunks != null) {
+            job.setChunksProcessed(chunks);
+        }
+        job.setError(error);
+        job = jobRepository.save(job);
+        if ("FILE".equals(job.getSourceType())) {
+            uploadRepository.delete(jobId);
+        }
+
+        publish(jobId, status.toLowerCase(), IngestJobResponse.from(job));
+        List<SseEmitter> jobSubscribers = subscribers.remove(jobId);
+        if (jobSubscribers != null) {
+            jobSubscribers.forEach(SseEmitter::complete);
+        }
+    }
+
+    private void publish(UUID jobId, String type, Object data) {
+        List<SseEmitter> jobSubscribers = subscribers.get(jobId);
+        if (jobSubscribers != null) {
+            jobSubscribers.forEach(emitter -> sendEvent(emitter, type, data));
+        }
+    }
+
+    private void sendEvent(SseEmitter emitter, String type, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(type).data(data));
+        } catch (IOException e) {
+            // Subscriber went away; the emitter callbacks take care of cleanup
+        }
+    }
+
+    private IngestionJob findJob(UUID jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new IngestionJobNotFoundException("Ingestion job with ID " + jobId + " not found."));
+    }
+
+    private static boolean isTerminal(String status) {
+        return COMPLETED.equals(status) || FAILED.equals(status);
+    }
+
+    private static void deleteSpool(Path directory) {
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", directory, e.getMessage());
+        }
+    }
+}
@@ -1,60 +1,267 @@
 package com.aibusiness.rag.service;
 
 import lombok.RequiredArgsConstructor;
-import org.apache.tika.Tika;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.transformer.splitter.TextSplitter;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class IngestionService {
 
+    private static final String STRUCTURE_STRATEGY = "structure";
+
     private final WebClient.Builder webClientBuilder;
 
+    @Value("${rag.ingest.extraction-segment-chars:65536}")
+    private int extractionSegmentChars;
+
+    @Value("${rag.crawl.max-page-bytes:10485760}")
+    private int maxPageBytes;
+
+    @Value("${rag.crawl.fetch-timeout:PT30S}")
+    private Duration fetchTimeout;
+
+    @Value("${rag.chunking.strategy:token}")
+    private String chunkingStrategy;
+
+    @Value("${rag.chunking.chunk-tokens:256}")
+    private int chunkTokens;
+
+    @Value("${rag.chunking.overlap-tokens:32}")
+    private int overlapTokens;
+
+    @Value("${rag.chunking.parent-tokens:1024}")
+    private int parentTokens;
+
+    @Value("${rag.chunking.min-section-tokens:64}")
+    private int minSectionTokens;
+
+    private volatile WebClient pageClient;
+    private volatile WebClient noRedirectPageClient;
+
     /**
-     * Processes an uploaded file, chunks it, and returns a list of Documents.
+     * Source id of an uploaded file, the scope its chunks are deduplicated and pruned in.
+     * An explicit {@code sourceId} lets a new version of a document replace the old one.
+     * Without it the id is the file name qualified by a digest of the file's bytes, so two
+     * different files that share a name never prune each other, while re-uploading the
+     * same file is still a no-op.
      */
-    public List<Document> processFile(MultipartFile file) throws IOException {
-        Resource resource = new ByteArrayResource(file.getBytes()) {
-            @Override
-            public String getFilename() {
-                return file.getOriginalFilename();
+    public String fileSourceId(String sourceId, String filename, InputStreamSource content) throws IOException {
+        if (sourceId != null) {
+            if (sourceId.isBlank()) {
+                throw new IllegalArgumentException("source_id must not be blank");
             }
-        };
+            return sourceId;
+        }
+        String name = filename != null && !filename.isBlank() ? filename : "upload";
+        try (InputStream input = content.getInputStream()) {
+            return name + "#" + ContentHasher.hash(input).substring(0, 16);
+        }
+    }
 
-        // Use Tika to read and parse the document content
-        TikaDocumentReader reader = new TikaDocumentReader(resource);
-        List<Document> documents = reader.get();
+    /**
+     * Streams an uploaded file through Tika and hands chunks to the sink as text is extracted.
+     * Peak memory is bounded by the segment size, not by the size of the file.
+     */
+    public void processFile(MultipartFile file, Consumer<List<Document>> chunkSink) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            extractAndChunk(TikaInputStream.get(input), file.getOriginalFilename(), null, chunkSink);
+        }
+    }
+
+    /**
+     * Same as {@link #processFile(MultipartFile, Consumer)} for a file already on disk (e.g. spooled
+     * by an ingestion job). Tika reads it with random access instead of buffering it.
+     */
+    public void processFile(Path path, Consumer<List<Document>> chunkSink) throws IOException {
+        extractAndChunk(TikaInputStream.get(path), path.getFileName().toString(), null, chunkSink);
+    }
+
+    private void extractAndChunk(TikaInputStream input, String filename, String contentType,
+                                 Consumer<List<Document>> chunkSink) throws IOException {
+        Map<String, Object> sourceMetadata = Map.of("source", filename != null ? filename : "upload");
+        DefaultHandler handler;
+        Runnable flush;
+        if (STRUCTURE_STRATEGY.equals(chunkingStrategy)) {
+            StructureChunkingContentHandler structured = new StructureChunkingContentHandler(
+                    new StructureChunkingContentHandler.Settings(chunkTokens, overlapTokens, parentTokens, minSectionTokens),
+                    sourceMetadata, chunkSink);
+            handler = structured;
+            flush = structured::flush;
+        } else {
+            TextSplitter textSplitter = new TokenTextSplitter();
+            ChunkingContentHandler segmenting = new ChunkingContentHandler(extractionSegmentChars,
+                    segment -> chunkSink.accept(textSplitter.apply(List.of(new Document(segment, sourceMetadata)))));
+            handler = segmenting;
+            flush = segmenting::flush;
+        }
+
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, filename);
+        if (contentType != null) {
+            metadata.set(Metadata.CONTENT_TYPE, contentType);
+        }
+        try (input) {
+            new AutoDetectParser().parse(input, handler, metadata, new ParseContext());
+        } catch (SAXException | TikaException e) {
+            throw new IOException("Failed to parse file: " + filename, e);
+        }
+        flush.run();
+    }
+
+    /**
+     * Result of a (conditional) page fetch. {@code body} is null when the server answered
+     * 304 Not Modified, or a redirect that was not followed; {@code redirectTo} then holds
+     * the redirect's absolute target.
+     */
+    public record FetchedPage(byte[] body, String contentType, String etag, String lastModified, String redirectTo) {
+        public boolean notModified() {
+            return body == null && redirectTo == null;
+        }
 
-        // Split the document into smaller chunks for effective embedding
-        TextSplitter textSplitter = new TokenTextSplitter();
-        return textSplitter.apply(documents);
+        public boolean redirected() {
+            return redirectTo != null;
+        }
     }
 
     /**
      * Processes a web URL, scrapes its content, chunks it, and returns a list of Documents.
      */
-    public List<Document> processUrl(String url) {
+    public List<Document> processUrl(String url) throws IOException {
+        return processPage(url, fetchPage(url, null, null));
+    }
+
+    /**
+     * Fetches a page, sending the validators of a previous fetch so an unchanged page
+     * costs a 304 instead of a download.
+     */
+    public FetchedPage fetchPage(String url, String etag, String lastModified) {
+        return fetchPageAsync(url, etag, lastModified).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchPage}, for crawling many pages concurrently.
+     */
+    public Mono<FetchedPage> fetchPageAsync(String url, String etag, String lastModified) {
+        return fetch(pageClient(), url, etag, lastModified);
+    }
+
+    /**
+     * Fetches a page without following redirects: a 3xx answer comes back as a
+     * {@link FetchedPage#redirected() redirected} page so the caller can vet the target
+     * (origin, robots rules) before requesting it.
+     */
+    public Mono<FetchedPage> fetchPageNoRedirect(String url) {
+        return fetch(noRedirectPageClient(), url, null, null);
+    }
+
+    private Mono<FetchedPage> fetch(WebClient client, String url, String etag, String lastModified) {
         // A more advanced scraper would be needed for JS-heavy sites (e.g., using Playwright)
-        String content = webClientBuilder.build()
+        return client
                 .get()
                 .uri(url)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block(); // Block for simplicity in this flow
+                .headers(headers -> {
+                    if (etag != null) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                    if (lastModified != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                    }
+                })
+                .exchangeToMono(response -> {
+                    if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        return Mono.just(new FetchedPage(null, null, etag, lastModified, null));
+                    }
+                    URI location = response.headers().asHttpHeaders().getLocation();
+                    if (response.statusCode().is3xxRedirection() && location != null) {
+                        return response.releaseBody().thenReturn(
+                                new FetchedPage(null, null, null, null, URI.create(url).resolve(location).toString()));
+                    }
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    return response.bodyToMono(byte[].class)
+                            .defaultIfEmpty(new byte[0])
+                            .map(body -> new FetchedPage(body,
+                                    headers.getContentType() != null ? headers.getContentType().toString() : null,
+                                    headers.getETag(), headers.getFirst(HttpHeaders.LAST_MODIFIED), null));
+                })
+                .timeout(fetchTimeout);
+    }
+
+    private WebClient pageClient() {
+        if (pageClient == null) {
+            pageClient = webClientBuilder.clone()
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create().followRedirect(true)))
+                    .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxPageBytes))
+                    .build();
+        }
+        return pageClient;
+    }
 
-        Document document = new Document(content, Map.of("source", url));
-        TextSplitter textSplitter = new TokenTextSplitter();
-        return textSplitter.apply(List.of(document));
+    private WebClient noRedirectPageClient() {
+        if (noRedirectPageClient == null) {
+            noRedirectPageClient = webClientBuilder.clone()
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create().followRedirect(false)))
+                    .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxPageBytes))
+                    .build();
+        }
+        return noRedirectPageClient;
+    }
+
+    /**
+     * Extracts the text of a fetched page and chunks it. HTML is cleaned of markup and site
+     * chrome by {@link HtmlTextExtractor}; any other format goes through Tika like an uploaded file.
+     */
+    public List<Document> processPage(String url, FetchedPage page) throws IOException {
+        if (HtmlTextExtractor.isHtml(page.contentType()) && STRUCTURE_STRATEGY.equals(chunkingStrategy)) {
+            // Tika re-reads the cleaned markup so headings, lists and tables reach the structure chunker
+            String content = HtmlTextExtractor.mainContent(
+                    HtmlTextExtractor.parse(page.body(), page.contentType(), url)).outerHtml();
+            List<Document> chunks = new ArrayList<>();
+            extractAndChunk(TikaInputStream.get(content.getBytes(StandardCharsets.UTF_8)), url,
+                    "text/html; charset=UTF-8", chunks::addAll);
+            return chunks;
+        }
+        if (HtmlTextExtractor.isHtml(page.contentType())) {
+            String text = HtmlTextExtractor.text(HtmlTextExtractor.parse(page.body(), page.contentType(), url));
+            if (text.isEmpty()) {
+                return List.of();
+            }
+            return new TokenTextSplitter().apply(List.of(new Document(text, Map.of("source", url))));
+        }
+        List<Document> chunks = new ArrayList<>();
+        extractAndChunk(TikaInputStream.get(page.body()), url, page.contentType(), chunks::addAll);
+        return chunks;
     }
 }
@@ -0,0 +1,79 @@
+package com.aibusiness.rag.service;
+
+import java.util.Arrays;
+
+/**
+ * Scalar-quantized arena: one signed byte per dimension, a quarter of the float footprint.
+ * Scores are asymmetric (full-precision query against quantized vectors), which keeps
+ * most of the ranking quality; callers re-rank the top candidates at full precision.
+ */
+public class Int8VectorArena implements VectorArena {
+
+    private static final int PAGE_SHIFT = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int INITIAL_PAGE_SLOTS = 16;
+
+    private final int dimensions;
+    private final ScalarQuantizer quantizer;
+    private byte[][] pages = new byte[0][];
+
+    public Int8VectorArena(ScalarQuantizer quantizer) {
+        this.dimensions = quantizer.dimensions();
+        this.quantizer = quantizer;
+    }
+
+    @Override
+    public void set(int node, float[] vector) {
+        setCode(node, quantizer.encode(vector));
+    }
+
+    /**
+     * Stores an already quantized vector, e.g. one read from the embedding_i8 column.
+     */
+    public void setCode(int node, byte[] code) {
+        int page = node >>> PAGE_SHIFT;
+        int slot = node & (PAGE_SIZE - 1);
+        if (page >= pages.length) {
+            pages = Arrays.copyOf(pages, page + 1);
+            pages[page] = new byte[INITIAL_PAGE_SLOTS * dimensions];
+        }
+        if ((slot + 1) * dimensions > pages[page].length) {
+            // The newest page grows geometrically, so a small index does not pay for a full page
+            pages[page] = Arrays.copyOf(pages[page], Math.min(PAGE_SIZE, 2 * (slot + 1)) * dimensions);
+        }
+        System.arraycopy(code, 0, pages[page], slot * dimensions, dimensions);
+    }
+
+    @Override
+    public float[] get(int node) {
+        byte[] code = new byte[dimensions];
+        System.arraycopy(pages[node >>> PAGE_SHIFT], (node & (PAGE_SIZE - 1)) * dimensions, code, 0, dimensions);
+        return quantizer.decode(code);
+    }
+
+    @Override
+    public NodeScorer scorer(float[] query) {
+        // value_i = offset_i + code_i * scale_i, so q.v = sum(q_i * offset_i) + sum((q_i * scale_i) * code_i)
+        float[] weights = new float[dimensions];
+        float constant = 0;
+        for (int i = 0; i < dimensions; i++) {
+            weights[i] = query[i] * quantizer.scale(i);
+            constant += query[i] * quantizer.offset(i);
+        }
+        float base = constant;
+        return node -> {
+            byte[] page = pages[node >>> PAGE_SHIFT];
+            int offset = (node & (PAGE_SIZE - 1)) * dimensions;
+            float sum = base;
+            for (int i = 0; i < dimensions; i++) {
+                sum += weights[i] * page[offset + i];
+            }
+            return sum;
+        };
+    }
+
+    @Override
+    public int bytesPerVector() {
+        return dimensions;
+    }
+}
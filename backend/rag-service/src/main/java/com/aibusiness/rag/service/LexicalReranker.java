@@ -0,0 +1,56 @@
+package com.aibusiness.rag.service;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Deterministic local scorer: blends the retrieval's cosine similarity with the share of
+ * the query's content words that occur in the chunk. Needs no model call, so it is cheap
+ * enough to run on every candidate and gives the same answer offline.
+ */
+public class LexicalReranker implements Reranker {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "how",
+            "i", "in", "is", "it", "of", "on", "or", "that", "the", "this", "to", "was", "we", "what",
+            "when", "where", "which", "who", "why", "with", "you", "your");
+
+    private final double vectorWeight;
+
+    public LexicalReranker(double vectorWeight) {
+        this.vectorWeight = vectorWeight;
+    }
+
+    @Override
+    public List<Double> score(String query, List<Document> candidates) {
+        Set<String> queryTerms = terms(query);
+        return candidates.stream()
+                .map(candidate -> score(queryTerms, candidate))
+                .toList();
+    }
+
+    private double score(Set<String> queryTerms, Document candidate) {
+        double coverage = 0;
+        if (!queryTerms.isEmpty()) {
+            Set<String> chunkTerms = terms(candidate.getContent());
+            coverage = (double) queryTerms.stream().filter(chunkTerms::contains).count() / queryTerms.size();
+        }
+        // Chunks found only by the full-text leg carry no distance; judge them on their terms
+        if (!(candidate.getMetadata().get("distance") instanceof Number distance)) {
+            return coverage;
+        }
+        double similarity = Math.max(0, Math.min(1, 1 - distance.doubleValue()));
+        return vectorWeight * similarity + (1 - vectorWeight) * coverage;
+    }
+
+    private static Set<String> terms(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> term.length() > 1 && !STOP_WORDS.contains(term))
+                .collect(Collectors.toSet());
+    }
+}
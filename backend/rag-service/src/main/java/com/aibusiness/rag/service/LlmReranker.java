@@ -0,0 +1,75 @@
+package com.aibusiness.rag.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Asks the chat model to grade all candidates in a single call. More accurate than the
+ * lexical scorer on paraphrased questions at the cost of one extra model round trip;
+ * falls back to the lexical scorer when the call fails or the reply cannot be parsed.
+ * The model grades the passages of a call against each other, so grades of separate calls
+ * are not comparable and the scorer is not {@link #incremental()}.
+ */
+public class LlmReranker implements Reranker {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmReranker.class);
+    private static final Pattern GRADE = Pattern.compile("(?m)^\\s*\\[?(\\d+)]?\\s*[:=-]\\s*(\\d+(?:\\.\\d+)?)");
+
+    private final ChatClient chatClient;
+    private final Reranker fallback;
+
+    public LlmReranker(ChatClient chatClient, Reranker fallback) {
+        this.chatClient = chatClient;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public boolean incremental() {
+        return false;
+    }
+
+    @Override
+    public List<Double> score(String query, List<Document> candidates) {
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder prompt = new StringBuilder("""
+                Rate how relevant each passage is for answering the query, from 0 (irrelevant)
+                to 10 (directly answers it). Reply with one line per passage in the form
+                <passage number>: <score> and nothing else.
+
+                QUERY:
+                """).append(query).append("\n\n");
+        for (int i = 0; i < candidates.size(); i++) {
+            prompt.append("PASSAGE ").append(i + 1).append(":\n").append(candidates.get(i).getContent()).append("\n\n");
+        }
+        try {
+            String reply = chatClient.prompt().user(prompt.toString()).call().content();
+            List<Double> scores = new ArrayList<>(Collections.nCopies(candidates.size(), 0.0));
+            Matcher matcher = GRADE.matcher(reply);
+            int parsed = 0;
+            while (matcher.find()) {
+                int passage = Integer.parseInt(matcher.group(1)) - 1;
+                if (passage >= 0 && passage < candidates.size()) {
+                    scores.set(passage, Math.min(10, Double.parseDouble(matcher.group(2))) / 10);
+                    parsed++;
+                }
+            }
+            if (parsed == 0) {
+                throw new IllegalStateException("no grades in reply");
+            }
+            return scores;
+        } catch (Exception e) {
+            log.warn("LLM re-ranking failed, using the lexical scorer: {}", e.getMessage());
+            return fallback.score(query, candidates);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.repository.ParentChunkRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Expands retrieved child chunks to their parent section when the section is evidently
+ * what the query is about, i.e. when at least {@code rag.chunking.expand-min-children} of
+ * its children were retrieved. The parent takes the place of its best-ranked child; lone
+ * children stay small so they don't crowd the context budget.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParentChunkExpander {
+
+    private final ParentChunkRepository parentChunkRepository;
+
+    @Value("${rag.chunking.expand-min-children:2}")
+    private int minChildren;
+
+    public List<Document> expand(List<Document> rankedChunks) {
+        Map<String, Integer> childCounts = new LinkedHashMap<>();
+        for (Document chunk : rankedChunks) {
+            Object parentId = chunk.getMetadata().get(StructureChunkingContentHandler.PARENT_ID);
+            if (parentId != null) {
+                childCounts.merge(parentId.toString(), 1, Integer::sum);
+            }
+        }
+        childCounts.values().removeIf(count -> count < minChildren);
+        if (childCounts.isEmpty()) {
+            return rankedChunks;
+        }
+
+        Map<String, String> parents = parentChunkRepository.findContents(childCounts.keySet());
+        List<Document> expanded = new ArrayList<>(rankedChunks.size());
+        Set<String> emitted = new HashSet<>();
+        for (Document chunk : rankedChunks) {
+            Object parentId = chunk.getMetadata().get(StructureChunkingContentHandler.PARENT_ID);
+            String parentContent = parentId != null ? parents.get(parentId.toString()) : null;
+            if (parentContent == null) {
+                expanded.add(chunk);
+            } else if (emitted.add(parentId.toString())) {
+                Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+                metadata.remove("content_hash");
+                metadata.put("expanded_children", childCounts.get(parentId.toString()));
+                expanded.add(new Document(parentId.toString(), parentContent, metadata));
+            }
+        }
+        return expanded;
+    }
+}
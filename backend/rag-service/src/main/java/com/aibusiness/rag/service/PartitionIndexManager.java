@@ -0,0 +1,178 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.event.SourceChangedEvent;
+import com.aibusiness.rag.repository.IndexMaintenanceRepository;
+import com.aibusiness.rag.repository.VectorChunkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Gives each user partition of vector_store its own partial HNSW index once it is large
+ * enough to benefit, so a search walks a graph of that user's chunks only and its latency
+ * does not grow with the number of users. Smaller partitions are ranked exactly after a
+ * B-tree lookup on user_id, which is cheaper than maintaining an index per user.
+ * Builds run on the maintenance executor while holding the maintenance lock, so they never
+ * overlap a VACUUM, REINDEX or rebuild of vector_store on any instance.
+ */
+@Component
+public class PartitionIndexManager {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionIndexManager.class);
+
+    private static final String SHARED_INDEX = "vector_store_shared_halfvec_idx";
+    private static final String USER_INDEX_PREFIX = "vector_store_user_";
+    private static final String INDEX_SUFFIX = "_halfvec_idx";
+    // Full-precision HNSW indexes of earlier versions, replaced by halfvec ones at startup
+    private static final String LEGACY_SHARED_INDEX = "vector_store_shared_hnsw_idx";
+    private static final String LEGACY_INDEX_SUFFIX = "_hnsw_idx";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorChunkRepository chunkRepository;
+    private final IndexMaintenanceRepository maintenanceRepository;
+    private final ExecutorService maintenanceExecutor;
+    private final long minChunks;
+    private final Set<Long> indexedUsers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> building = ConcurrentHashMap.newKeySet();
+
+    public PartitionIndexManager(JdbcTemplate jdbcTemplate,
+                                 VectorChunkRepository chunkRepository,
+                                 IndexMaintenanceRepository maintenanceRepository,
+                                 ExecutorService maintenanceExecutor,
+                                 @Value("${rag.partitions.index-min-chunks:5000}") long minChunks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkRepository = chunkRepository;
+        this.maintenanceRepository = maintenanceRepository;
+        this.maintenanceExecutor = maintenanceExecutor;
+        this.minChunks = minChunks;
+    }
+
+    /**
+     * Whether searches of the partition can use a partial HNSW index. The shared corpus
+     * always has one ({@link #ensureSharedIndex()}).
+     */
+    public boolean isIndexed(Long userId) {
+        return userId == null || indexedUsers.contains(userId);
+    }
+
+    /**
+     * Reads the partition indexes from the catalog; also called after vector_store has been
+     * rebuilt, which may have dropped indexes created while the rebuild ran.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadExistingIndexes() {
+        try {
+            Set<Long> found = new HashSet<>();
+            // Skip indexes left invalid by an interrupted CREATE INDEX CONCURRENTLY
+            for (String name : userIndexNames(INDEX_SUFFIX, true)) {
+                found.add(userId(name, INDEX_SUFFIX));
+            }
+            indexedUsers.retainAll(found);
+            indexedUsers.addAll(found);
+            log.info("Found partial HNSW indexes for {} user partitions", indexedUsers.size());
+        } catch (Exception e) {
+            log.warn("Could not list partition indexes, user searches will scan their partition: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Makes sure the shared corpus has its HNSW index, then drops the global index of older
+     * PgVectorStore schemas (spring_ai_vector_index) and the full-precision shared index of
+     * earlier versions. Every search is confined to one partition and uses a partial index
+     * or an exact scan, so a global index would only cost every write an extra graph insert.
+     * Old indexes are dropped only once their replacement exists, so searches are never left
+     * without an index; user partitions that still have a full-precision index get a halfvec
+     * one the same way.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSharedIndex() {
+        CompletableFuture.runAsync(() -> {
+            try {
+                maintenanceRepository.runLocked(true, () -> {
+                    buildIndex(SHARED_INDEX, VectorChunkRepository.partitionPredicate(null));
+                    jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS spring_ai_vector_index");
+                    jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + LEGACY_SHARED_INDEX);
+                    for (String legacy : userIndexNames(LEGACY_INDEX_SUFFIX, false)) {
+                        createIndex(userId(legacy, LEGACY_INDEX_SUFFIX));
+                        jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + legacy);
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("Failed to create the HNSW index of the shared corpus: {}", e.getMessage());
+            }
+        }, maintenanceExecutor);
+    }
+
+    @EventListener
+    public void onSourceChanged(SourceChangedEvent event) {
+        Long userId = event.userId();
+        // Index names embed the id, and only positive ids make a valid identifier
+        if (userId == null || userId <= 0 || indexedUsers.contains(userId) || !building.add(userId)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                if (chunkRepository.countChunks(userId) >= minChunks) {
+                    maintenanceRepository.runLocked(true, () -> createIndex(userId));
+                }
+            } catch (Exception e) {
+                log.warn("Failed to create the HNSW index for user {}: {}", userId, e.getMessage());
+            } finally {
+                building.remove(userId);
+            }
+        }, maintenanceExecutor);
+    }
+
+    private void createIndex(long userId) {
+        if (userId <= 0) {
+            throw new IllegalArgumentException("Partition indexes need a positive user id, got " + userId);
+        }
+        long start = System.currentTimeMillis();
+        buildIndex(USER_INDEX_PREFIX + userId + INDEX_SUFFIX, VectorChunkRepository.partitionPredicate(userId));
+        indexedUsers.add(userId);
+        log.info("Created partial HNSW index for user {} in {} ms", userId, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Builds a partial HNSW index with CREATE INDEX CONCURRENTLY, which keeps the partition
+     * writable; {@code predicate} must match the search's partitionPredicate exactly, and the
+     * indexed expression the one similaritySearch orders by.
+     */
+    private void buildIndex(String name, String predicate) {
+        // An interrupted earlier build leaves an invalid index behind that IF NOT EXISTS would keep
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "WHERE c.relname = ? AND NOT i.indisvalid)", Boolean.class, name))) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        }
+        try {
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " " +
+                    "ON vector_store " + chunkRepository.hnswIndexMethod() + " WHERE " + predicate);
+        } catch (RuntimeException e) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+            throw e;
+        }
+    }
+
+    private List<String> userIndexNames(String suffix, boolean validOnly) {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "WHERE i.indrelid = 'vector_store'::regclass AND (i.indisvalid OR NOT ?) " +
+                        "AND c.relname LIKE ?", String.class, validOnly, USER_INDEX_PREFIX + "%" + suffix);
+    }
+
+    private static long userId(String indexName, String suffix) {
+        return Long.parseLong(indexName.substring(USER_INDEX_PREFIX.length(), indexName.length() - suffix.length()));
+    }
+}
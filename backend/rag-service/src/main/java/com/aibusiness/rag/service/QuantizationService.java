@@ -0,0 +1,199 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.dto.QuantizationRecallResponse;
+import com.aibusiness.rag.dto.QuantizationStatusResponse;
+import com.aibusiness.rag.event.ChunksStoredEvent;
+import com.aibusiness.rag.repository.QuantizationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Maintains the int8 tier of the stored embeddings: fits the scalar quantizer on a sample
+ * of vector_store, backfills vector_store.embedding_i8, encodes newly stored chunks, and
+ * measures how much recall the quantized representation costs.
+ */
+@Service
+@RequiredArgsConstructor
+public class QuantizationService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuantizationService.class);
+
+    private final QuantizationRepository quantizationRepository;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final AtomicLong backfilledRows = new AtomicLong();
+    private volatile ScalarQuantizer quantizer;
+
+    @Value("${rag.quantization.sample-size:10000}")
+    private int sampleSize;
+
+    @Value("${rag.quantization.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+
+    @Value("${rag.index.in-memory.rerank-depth:50}")
+    private int rerankDepth;
+
+    /**
+     * The fitted quantizer, if a backfill has ever run.
+     */
+    public Optional<ScalarQuantizer> quantizer() {
+        if (quantizer == null) {
+            quantizationRepository.findParams().ifPresent(params -> quantizer = params);
+        }
+        return Optional.ofNullable(quantizer);
+    }
+
+    /**
+     * Starts the backfill in the background. Existing parameters are kept unless
+     * {@code refit} is set, so codes that are already stored stay valid; a refit rewrites
+     * every row and in-memory indexes pick the new parameters up on their next load.
+     */
+    public QuantizationStatusResponse startBackfill(boolean refit) {
+        if (backfillRunning.compareAndSet(false, true)) {
+            backfilledRows.set(0);
+            CompletableFuture.runAsync(() -> {
+                try {
+                    backfill(refit);
+                } catch (Exception e) {
+                    log.error("Quantization backfill failed after {} rows: {}", backfilledRows.get(), e.getMessage(), e);
+                } finally {
+                    backfillRunning.set(false);
+                }
+            });
+        }
+        return status();
+    }
+
+    public QuantizationStatusResponse status() {
+        ScalarQuantizer current = quantizer().orElse(null);
+        return new QuantizationStatusResponse(backfillRunning.get(), backfilledRows.get(),
+                quantizationRepository.countQuantized(), current != null ? current.dimensions() : 0);
+    }
+
+    @EventListener
+    public void onChunksStored(ChunksStoredEvent event) {
+        try {
+            ScalarQuantizer current = quantizer().orElse(null);
+            if (current == null) {
+                return;
+            }
+            Map<UUID, byte[]> codes = new HashMap<>();
+            for (int i = 0; i < event.documents().size(); i++) {
+                codes.put(UUID.fromString(event.documents().get(i).getId()),
+                        current.encode(VectorMath.normalize(event.embeddings().get(i))));
+            }
+            quantizationRepository.saveCodes(codes);
+        } catch (Exception e) {
+            // Rows left without a code are picked up by the next backfill or encoded at index load
+            log.warn("Failed to store int8 codes for {} chunks: {}", event.documents().size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Compares the top-k of an exact float search with the top-k of an int8 search, with
+     * and without re-ranking the top candidates at full precision. Queries are held out
+     * from a random sample of stored embeddings and the rest of the sample is the corpus.
+     */
+    public QuantizationRecallResponse evaluateRecall(int queries, int k) {
+        List<float[]> sample = quantizationRepository.sampleEmbeddings(sampleSize + queries).stream()
+                .map(VectorMath::normalize)
+                .toList();
+        if (sample.size() <= queries) {
+            throw new IllegalStateException("Not enough stored chunks to evaluate recall");
+        }
+        List<float[]> queryVectors = sample.subList(0, queries);
+        List<float[]> corpus = sample.subList(queries, sample.size());
+        ScalarQuantizer evaluated = quantizer().orElseGet(() -> ScalarQuantizer.fit(corpus));
+
+        VectorArena exact = new FloatVectorArena(evaluated.dimensions());
+        VectorArena quantized = new Int8VectorArena(evaluated);
+        for (int node = 0; node < corpus.size(); node++) {
+            exact.set(node, corpus.get(node));
+            quantized.set(node, corpus.get(node));
+        }
+
+        double recall = 0;
+        double rerankedRecall = 0;
+        for (float[] query : queryVectors) {
+            VectorArena.NodeScorer exactScorer = exact.scorer(query);
+            Set<Integer> truth = new HashSet<>(topK(exactScorer, corpus.size(), k));
+            List<Integer> approximate = topK(quantized.scorer(query), corpus.size(), Math.max(k, rerankDepth));
+
+            recall += overlap(truth, approximate.subList(0, Math.min(k, approximate.size())), k);
+            List<Integer> reranked = new ArrayList<>(approximate);
+            reranked.sort(Comparator.comparingDouble((Integer node) -> exactScorer.score(node)).reversed());
+            rerankedRecall += overlap(truth, reranked.subList(0, Math.min(k, reranked.size())), k);
+        }
+        return new QuantizationRecallResponse(corpus.size(), queries, k, rerankDepth,
+                recall / queries, rerankedRecall / queries,
+                exact.bytesPerVector(), quantized.bytesPerVector());
+    }
+
+    private void backfill(boolean refit) {
+        long start = System.currentTimeMillis();
+        ScalarQuantizer current = refit ? null : quantizer().orElse(null);
+        if (current == null) {
+            List<float[]> sample = quantizationRepository.sampleEmbeddings(sampleSize).stream()
+                    .map(VectorMath::normalize)
+                    .toList();
+            if (sample.isEmpty()) {
+                log.info("No chunks stored yet, nothing to quantize");
+                return;
+            }
+            current = ScalarQuantizer.fit(sample);
+            quantizationRepository.saveParams(current);
+            quantizer = current;
+            log.info("Fitted int8 quantizer on {} sampled embeddings", sample.size());
+            refit = true;
+        }
+
+        UUID lastId = null;
+        while (true) {
+            Map<UUID, float[]> page = quantizationRepository.findEmbeddingPage(lastId, !refit, backfillBatchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<UUID, byte[]> codes = new HashMap<>();
+            for (Map.Entry<UUID, float[]> entry : page.entrySet()) {
+                codes.put(entry.getKey(), current.encode(VectorMath.normalize(entry.getValue())));
+                lastId = entry.getKey();
+            }
+            quantizationRepository.saveCodes(codes);
+            backfilledRows.addAndGet(codes.size());
+        }
+        log.info("Quantization backfill wrote {} int8 codes in {} ms", backfilledRows.get(), System.currentTimeMillis() - start);
+    }
+
+    private static List<Integer> topK(VectorArena.NodeScorer scorer, int size, int k) {
+        float[] scores = new float[size];
+        for (int node = 0; node < size; node++) {
+            scores[node] = scorer.score(node);
+        }
+        return IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparingDouble((Integer node) -> scores[node]).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    private static double overlap(Set<Integer> truth, List<Integer> found, int k) {
+        return (double) found.stream().filter(truth::contains).count() / k;
+    }
+}
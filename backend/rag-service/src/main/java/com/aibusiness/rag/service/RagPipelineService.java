@@ -1,51 +1,202 @@
 package com.aibusiness.rag.service;
 
+import com.aibusiness.rag.dto.BatchQueryRequest;
+import com.aibusiness.rag.dto.BatchQueryResponse;
 import com.aibusiness.rag.dto.IngestResponse;
 import com.aibusiness.rag.dto.QueryResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RagPipelineService {
     private final IngestionService ingestionService;
-    private final VectorStore vectorStore;
+    private final EmbeddingPipelineService embeddingPipelineService;
+    private final CrawlService crawlService;
+    private final RerankingRetriever rerankingRetriever;
+    private final ParentChunkExpander parentChunkExpander;
+    private final ContextAssembler contextAssembler;
     private final ChatClient chatClient;
+    private final EmbeddingModel embeddingModel;
+    private final SemanticAnswerCache answerCache;
 
-    public IngestResponse ingestFile(MultipartFile file) throws IOException {
-        List<Document> documents = ingestionService.processFile(file);
-        vectorStore.add(documents);
-        return new IngestResponse(file.getOriginalFilename(), documents.size(), "File ingested successfully");
+    private final ExecutorService batchQueryExecutor;
+
+    @Value("${rag.retrieval.top-k:4}")
+    private int topK;
+
+    @Value("${rag.retrieval.max-batch-queries:50}")
+    private int maxBatchQueries;
+
+    public IngestResponse ingestFile(MultipartFile file, Long userId, String sourceId) throws IOException {
+        String source = ingestionService.fileSourceId(sourceId, file.getOriginalFilename(), file);
+        EmbeddingPipelineService.BatchWriter writer = embeddingPipelineService.openWriter(userId, source);
+        ingestionService.processFile(file, writer::add);
+        EmbeddingPipelineService.IngestResult result = writer.finish();
+        return new IngestResponse(source, result.chunksWritten(), ingestMessage("File", result));
     }
 
-    public IngestResponse ingestUrl(String url) {
-        List<Document> documents = ingestionService.processUrl(url);
-        vectorStore.add(documents);
-        return new IngestResponse(url, documents.size(), "URL ingested successfully");
+    public IngestResponse ingestUrl(String url, Long userId) {
+        CrawlService.CrawlResult crawl = crawlService.crawl(url, userId);
+        if (crawl.ingest() == null) {
+            return new IngestResponse(url, 0, CrawlService.NOT_MODIFIED.equals(crawl.status())
+                    ? "URL not modified since last crawl"
+                    : "URL content unchanged since last crawl");
+        }
+        return new IngestResponse(url, crawl.chunksWritten(), ingestMessage("URL", crawl.ingest()));
     }
 
-    public QueryResponse query(String query) {
-        // 1. Search the vector store for documents similar to the query
-        List<Document> similarDocuments = vectorStore.similaritySearch(
-                SearchRequest.query(query).withTopK(4) // Get top 4 most relevant chunks
-        );
+    private static String ingestMessage(String kind, EmbeddingPipelineService.IngestResult result) {
+        return String.format("%s ingested successfully (%d unchanged chunks skipped, %d stale chunks removed)",
+                kind, result.chunksSkipped(), result.chunksRemoved());
+    }
 
-        // 2. Extract the content and sources from the retrieved documents
-        List<String> context = similarDocuments.stream().map(Document::getContent).toList();
-        List<String> sources = similarDocuments.stream()
-                .map(doc -> doc.getMetadata().get("source").toString())
-                .distinct()
-                .toList();
+    /**
+     * Answers a query from one partition: the user's own chunks, or the shared corpus when
+     * {@code userId} is null.
+     */
+    public QueryResponse query(String query, Long userId, Integer efSearch) {
+        PreparedQuery prepared = prepare(query, userId, efSearch, VectorMath.toFloatArray(embeddingModel.embed(query)));
+        if (prepared.cached() != null) {
+            return prepared.cached();
+        }
+
+        // 4. Call the chat model to generate a final, grounded answer
+        String answer = chatClient.prompt(prepared.prompt()).call().content();
+        return complete(prepared, answer);
+    }
+
+    /**
+     * Retrieval only: the assembled context and its sources for a query, without calling the
+     * chat model. For callers that generate the answer themselves under a latency budget.
+     */
+    public QueryResponse retrieve(String query, Long userId, Integer efSearch) {
+        PreparedQuery prepared = prepare(query, userId, efSearch, VectorMath.toFloatArray(embeddingModel.embed(query)));
+        if (prepared.cached() != null) {
+            QueryResponse cached = prepared.cached();
+            return new QueryResponse(null, cached.getSources(), cached.getContext(), cached.getTokensSaved());
+        }
+        return new QueryResponse(null, prepared.sources(), prepared.context(), prepared.tokensSaved());
+    }
+
+    /**
+     * Streams the answer as server-sent events: a "sources" event with the retrieved
+     * context as soon as retrieval is done, a "token" event per generated fragment, and a
+     * final "done" event carrying the complete response ("error" if generation fails).
+     */
+    public Flux<ServerSentEvent<Object>> queryStream(String query, Long userId, Integer efSearch) {
+        // Embedding, retrieval and the cache lookup block, so keep them off the caller's thread
+        return Mono.fromCallable(() -> prepare(query, userId, efSearch, VectorMath.toFloatArray(embeddingModel.embed(query))))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(prepared -> {
+                    if (prepared.cached() != null) {
+                        QueryResponse cached = prepared.cached();
+                        return Flux.just(
+                                event("sources", new QueryResponse(null, cached.getSources(), cached.getContext(), cached.getTokensSaved())),
+                                event("token", cached.getAnswer()),
+                                event("done", cached));
+                    }
+                    StringBuilder answer = new StringBuilder();
+                    Flux<ServerSentEvent<Object>> tokens = chatClient.prompt(prepared.prompt()).stream().content()
+                            .doOnNext(answer::append)
+                            .map(token -> event("token", token));
+                    Mono<ServerSentEvent<Object>> done = Mono.fromCallable(() -> event("done", complete(prepared, answer.toString())));
+                    return Flux.concat(
+                            Flux.just(event("sources", new QueryResponse(null, prepared.sources(), prepared.context(), prepared.tokensSaved()))),
+                            tokens,
+                            done);
+                })
+                .onErrorResume(e -> Flux.just(event("error", Map.of("detail", "Failed to answer query: " + e.getMessage()))));
+    }
+
+    /**
+     * Answers several queries against one partition. All queries are embedded in a single
+     * embedding call and then retrieved (and answered) concurrently. A failing query is
+     * reported in its own result without failing the others.
+     */
+    public BatchQueryResponse queryBatch(BatchQueryRequest request) {
+        List<String> queries = request.getQueries() != null ? request.getQueries() : List.of();
+        if (queries.isEmpty() || queries.size() > maxBatchQueries) {
+            throw new IllegalArgumentException("A batch must contain between 1 and " + maxBatchQueries + " queries");
+        }
+        List<float[]> embeddings = embeddingModel.embed(queries).stream().map(VectorMath::toFloatArray).toList();
+
+        List<CompletableFuture<BatchQueryResponse.Result>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            String query = queries.get(i);
+            float[] embedding = embeddings.get(i);
+            results.add(CompletableFuture
+                    .supplyAsync(() -> batchResult(query, embedding, request), batchQueryExecutor)
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        return new BatchQueryResponse.Result(query, null, List.of(), List.of(), 0, cause.getMessage());
+                    }));
+        }
+        return new BatchQueryResponse(results.stream().map(CompletableFuture::join).toList());
+    }
+
+    private BatchQueryResponse.Result batchResult(String query, float[] embedding, BatchQueryRequest request) {
+        if (request.isRetrievalOnly()) {
+            List<Document> chunks = rerankingRetriever.retrieve(request.getUserId(), query, embedding, topK, request.getEfSearch());
+            return new BatchQueryResponse.Result(query, null, sourcesOf(chunks),
+                    chunks.stream().map(Document::getContent).toList(), 0, null);
+        }
+        PreparedQuery prepared = prepare(query, request.getUserId(), request.getEfSearch(), embedding);
+        QueryResponse response;
+        if (prepared.cached() != null) {
+            response = prepared.cached();
+        } else if (request.isSkipGeneration()) {
+            response = new QueryResponse(null, prepared.sources(), prepared.context(), prepared.tokensSaved());
+        } else {
+            response = complete(prepared, chatClient.prompt(prepared.prompt()).call().content());
+        }
+        return new BatchQueryResponse.Result(query, response.getAnswer(), response.getSources(),
+                response.getContext(), response.getTokensSaved(), null);
+    }
+
+    /**
+     * Everything up to the model call. {@code cached} is set when the semantic answer
+     * cache already holds an answer, in which case the other fields are not populated.
+     */
+    private record PreparedQuery(QueryResponse cached, Long userId, float[] queryEmbedding, long cacheGeneration,
+                                 Prompt prompt, List<String> sources, List<String> context, int tokensSaved) {}
+
+    private PreparedQuery prepare(String query, Long userId, Integer efSearch, float[] queryEmbedding) {
+        // 0. Serve near-identical questions from the semantic answer cache
+        QueryResponse cached = answerCache.find(userId, queryEmbedding);
+        if (cached != null) {
+            return new PreparedQuery(cached, userId, queryEmbedding, 0, null, null, null, 0);
+        }
+        long cacheGeneration = answerCache.generation();
+
+        // 1. Retrieve candidates (vector + full-text, fused by rank), keep the relevant ones and
+        //    widen sections that several of them come from to the whole section
+        List<Document> similarDocuments = parentChunkExpander.expand(
+                rerankingRetriever.retrieve(userId, query, queryEmbedding, topK, efSearch));
+
+        // 2. Pack the chunks into the context token budget, then collect what made it in
+        ContextAssembler.AssembledContext assembled = contextAssembler.assemble(similarDocuments);
+        List<String> context = assembled.chunks().stream().map(Document::getContent).toList();
+        List<String> sources = sourcesOf(assembled.chunks());
 
         // 3. Create a prompt with the retrieved context for the chat model
         String promptTemplate = """
@@ -63,13 +214,28 @@ public class RagPipelineService {
             """;
         
         PromptTemplate template = new PromptTemplate(promptTemplate, Map.of(
-            "context", String.join("\n---\n", context),
+            "context", assembled.text(),
             "query", query
         ));
-        
-        // 4. Call the chat model to generate a final, grounded answer
-        String answer = chatClient.prompt(template.create()).call().content();
-        
-        return new QueryResponse(answer, sources, context);
+
+        return new PreparedQuery(null, userId, queryEmbedding, cacheGeneration, template.create(),
+                sources, context, assembled.tokensSaved());
+    }
+
+    private QueryResponse complete(PreparedQuery prepared, String answer) {
+        QueryResponse response = new QueryResponse(answer, prepared.sources(), prepared.context(), prepared.tokensSaved());
+        answerCache.put(prepared.userId(), prepared.queryEmbedding(), response, prepared.cacheGeneration());
+        return response;
+    }
+
+    private static List<String> sourcesOf(List<Document> chunks) {
+        return chunks.stream()
+                .map(doc -> doc.getMetadata().get("source").toString())
+                .distinct()
+                .toList();
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
     }
 }
@@ -57,7 +57,7 @@ public class RagService {
         List<Document> similarDocuments = documentRepository.findNearestNeighbors(new PGvector(queryVector), 3);
 
         if (similarDocuments.isEmpty()) {
-            return new QueryResponse("I'm sorry, I don't have enough information to answer that.", List.of());
+            return new QueryResponse("I'm sorry, I don't have enough information to answer that.", List.of(), List.of(), 0);
         }
 
         List<String> sources = similarDocuments.stream()
@@ -75,6 +75,6 @@ public class RagService {
         // For now, we will just combine the sources as a mock answer.
         String finalAnswer = "Based on the information I have: " + String.join("; ", sources);
 
-        return new QueryResponse(finalAnswer, sources);
+        return new QueryResponse(finalAnswer, sources, sources, 0);
     }
 }
@@ -0,0 +1,25 @@
+package com.aibusiness.rag.service;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * Scores retrieved chunks for relevance to a query. Scores are in [0, 1].
+ */
+public interface Reranker {
+
+    /**
+     * Returns one score per candidate, in candidate order.
+     */
+    List<Double> score(String query, List<Document> candidates);
+
+    /**
+     * Whether scores are comparable across calls for the same query, so candidates can be
+     * scored incrementally as the depth grows. Scorers that grade candidates relative to
+     * the others of the same call are handed the full depth at once instead.
+     */
+    default boolean incremental() {
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package com.aibusiness.rag.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the chunks that go into the prompt. Over-fetches candidates from the
+ * {@link HybridRetriever}, scores them with the configured {@link Reranker} and keeps
+ * the best ones above a relevance cutoff, so irrelevant context is not sent to the model.
+ * <p>
+ * The scoring depth adapts per query: it starts small and doubles only while the
+ * deepest candidates of the current depth still clear the cutoff, i.e. while relevant
+ * material may continue below it. Easy queries stop after the first round. Retrieval runs
+ * once at the maximum depth; only how far down the fused list is scored adapts. A scorer
+ * that is not {@link Reranker#incremental()} scores the maximum depth in a single call, so
+ * all of its grades come from the same comparison.
+ */
+@Service
+@RequiredArgsConstructor
+public class RerankingRetriever {
+
+    private record Scored(Document document, double score) {}
+
+    private final HybridRetriever hybridRetriever;
+    private final Reranker reranker;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rag.rerank.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.rerank.initial-depth:8}")
+    private int initialDepth;
+
+    @Value("${rag.rerank.max-depth:32}")
+    private int maxDepth;
+
+    @Value("${rag.rerank.min-score:0.35}")
+    private double minScore;
+
+    @Value("${rag.rerank.tail-fraction:0.25}")
+    private double tailFraction;
+
+    @Value("${rag.rerank.min-chunks:1}")
+    private int minChunks;
+
+    public List<Document> retrieve(Long userId, String query, float[] queryEmbedding, int topK, Integer efSearch) {
+        if (!enabled) {
+            return hybridRetriever.retrieve(userId, query, queryEmbedding, topK, efSearch);
+        }
+
+        int limit = Math.max(maxDepth, topK);
+        List<Document> retrieved = hybridRetriever.retrieve(userId, query, queryEmbedding, limit, efSearch);
+
+        Map<String, Double> scores = new HashMap<>(); // Candidates are scored once, even when the depth grows
+        int depth = reranker.incremental() ? Math.min(Math.max(initialDepth, topK), limit) : limit;
+        List<Document> candidates;
+        while (true) {
+            candidates = retrieved.subList(0, Math.min(depth, retrieved.size()));
+            List<Document> unscored = candidates.stream().filter(c -> !scores.containsKey(c.getId())).toList();
+            List<Double> newScores = reranker.score(query, unscored);
+            for (int i = 0; i < unscored.size(); i++) {
+                scores.put(unscored.get(i).getId(), newScores.get(i));
+            }
+            if (candidates.size() < depth || depth >= limit || !tailIsRelevant(candidates, scores)) {
+                break;
+            }
+            depth = Math.min(depth * 2, limit);
+        }
+        meterRegistry.summary("rag.rerank.depth").record(depth);
+
+        List<Scored> ranked = new ArrayList<>();
+        for (Document candidate : candidates) {
+            ranked.add(new Scored(candidate, scores.get(candidate.getId())));
+        }
+        ranked.sort(Comparator.comparingDouble(Scored::score).reversed());
+
+        List<Document> kept = new ArrayList<>();
+        for (Scored scored : ranked) {
+            if (kept.size() >= topK || (scored.score() < minScore && kept.size() >= minChunks)) {
+                break;
+            }
+            kept.add(withScore(scored));
+        }
+        meterRegistry.counter("rag.rerank.chunks", "outcome", "kept").increment(kept.size());
+        meterRegistry.counter("rag.rerank.chunks", "outcome", "dropped").increment(candidates.size() - kept.size());
+        return kept;
+    }
+
+    private boolean tailIsRelevant(List<Document> candidates, Map<String, Double> scores) {
+        int tailStart = candidates.size() - Math.max(1, (int) Math.ceil(candidates.size() * tailFraction));
+        return candidates.subList(tailStart, candidates.size()).stream()
+                .anyMatch(candidate -> scores.get(candidate.getId()) >= minScore);
+    }
+
+    private static Document withScore(Scored scored) {
+        Map<String, Object> metadata = new HashMap<>(scored.document().getMetadata());
+        metadata.put("relevance_score", scored.score());
+        return new Document(scored.document().getId(), scored.document().getContent(), metadata);
+    }
+}
@@ -0,0 +1,80 @@
+package com.aibusiness.rag.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-dimension int8 scalar quantization. Each dimension's observed [min, max] range is
+ * mapped onto the 256 signed byte values; values outside the fitted range are clamped.
+ */
+public class ScalarQuantizer {
+
+    private final float[] offsets; // value represented by code 0
+    private final float[] scales;  // width of one code step
+
+    public ScalarQuantizer(float[] offsets, float[] scales) {
+        this.offsets = offsets;
+        this.scales = scales;
+    }
+
+    /**
+     * Fits the per-dimension ranges on a representative sample of vectors.
+     */
+    public static ScalarQuantizer fit(List<float[]> sample) {
+        int dimensions = sample.get(0).length;
+        float[] min = new float[dimensions];
+        float[] max = new float[dimensions];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (float[] vector : sample) {
+            for (int i = 0; i < dimensions; i++) {
+                min[i] = Math.min(min[i], vector[i]);
+                max[i] = Math.max(max[i], vector[i]);
+            }
+        }
+        float[] offsets = new float[dimensions];
+        float[] scales = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            scales[i] = Math.max(max[i] - min[i], 1e-9f) / 255f;
+            offsets[i] = min[i] + 128 * scales[i];
+        }
+        return new ScalarQuantizer(offsets, scales);
+    }
+
+    public byte[] encode(float[] vector) {
+        byte[] code = new byte[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            long q = Math.round((vector[i] - offsets[i]) / scales[i]);
+            code[i] = (byte) Math.max(-128, Math.min(127, q));
+        }
+        return code;
+    }
+
+    public float[] decode(byte[] code) {
+        float[] vector = new float[code.length];
+        for (int i = 0; i < code.length; i++) {
+            vector[i] = offsets[i] + code[i] * scales[i];
+        }
+        return vector;
+    }
+
+    public int dimensions() {
+        return offsets.length;
+    }
+
+    public float offset(int dimension) {
+        return offsets[dimension];
+    }
+
+    public float scale(int dimension) {
+        return scales[dimension];
+    }
+
+    public float[] offsets() {
+        return offsets.clone();
+    }
+
+    public float[] scales() {
+        return scales.clone();
+    }
+}
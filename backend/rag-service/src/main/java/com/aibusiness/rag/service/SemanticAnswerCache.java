@@ -0,0 +1,108 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.dto.QueryResponse;
+import com.aibusiness.rag.event.RemoteSourceChangedEvent;
+import com.aibusiness.rag.event.SourceChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches generated answers by query embedding. A new query is served from the cache when
+ * its cosine similarity to a cached query of the same partition is at or above the
+ * configured threshold.
+ * Entries expire after a TTL, are bounded in number, and are dropped as soon as any
+ * source they were built from changes, on this instance or, through the
+ * {@link ChangeFeedService}, on another one.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    private record CachedAnswer(Long userId, float[] embedding, QueryResponse response, Set<String> sources) {}
+
+    private final Cache<UUID, CachedAnswer> answers;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final MeterRegistry meterRegistry;
+    // Bumped on every invalidation so answers computed from since-changed sources are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public SemanticAnswerCache(@Value("${rag.answer-cache.enabled:true}") boolean enabled,
+                               @Value("${rag.answer-cache.similarity-threshold:0.95}") double similarityThreshold,
+                               @Value("${rag.answer-cache.max-entries:2000}") long maxEntries,
+                               @Value("${rag.answer-cache.ttl:PT1H}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.meterRegistry = meterRegistry;
+        this.answers = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Returns the cached answer of the most similar query above the threshold, or null.
+     */
+    public QueryResponse find(Long userId, float[] queryEmbedding) {
+        if (!enabled) {
+            return null;
+        }
+        float[] normalized = VectorMath.normalize(queryEmbedding);
+        CachedAnswer best = null;
+        double bestScore = similarityThreshold;
+        for (CachedAnswer candidate : answers.asMap().values()) {
+            if (!Objects.equals(candidate.userId(), userId)) {
+                continue;
+            }
+            double score = VectorMath.dot(normalized, candidate.embedding());
+            if (score >= bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        meterRegistry.counter("rag.answer.cache.lookups", "result", best != null ? "hit" : "miss").increment();
+        return best != null ? best.response() : null;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches an answer unless a source changed since {@code generationAtRetrieval} was read.
+     */
+    public void put(Long userId, float[] queryEmbedding, QueryResponse response, long generationAtRetrieval) {
+        if (!enabled || generation.get() != generationAtRetrieval) {
+            return;
+        }
+        answers.put(UUID.randomUUID(), new CachedAnswer(userId,
+                VectorMath.normalize(queryEmbedding), response, Set.copyOf(response.getSources())));
+    }
+
+    @EventListener
+    public void onSourceChanged(SourceChangedEvent event) {
+        invalidate(event.userId(), event.source());
+    }
+
+    @EventListener
+    public void onRemoteSourceChanged(RemoteSourceChangedEvent event) {
+        invalidate(event.userId(), event.source());
+    }
+
+    private void invalidate(Long userId, String source) {
+        generation.incrementAndGet();
+        // Answers built from no context at all may be answerable now, so drop those too
+        answers.asMap().values().removeIf(answer -> Objects.equals(answer.userId(), userId)
+                && (answer.sources().isEmpty() || answer.sources().contains(source)));
+    }
+}
@@ -0,0 +1,276 @@
+package com.aibusiness.rag.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Ingests a whole site from a seed URL. Same-origin links are followed breadth-first up to
+ * a depth and a page limit; pages of one depth are fetched concurrently over the
+ * non-blocking WebClient while every host is held to a minimum interval between requests
+ * (raised to its robots.txt Crawl-delay) and its Disallow rules are honoured. Each page
+ * goes through the {@link CrawlService}, so it is cleaned, chunked, streamed into the
+ * batched embedding pipeline and registered for incremental refreshes.
+ */
+@Service
+@RequiredArgsConstructor
+public class SiteCrawler {
+
+    private static final Logger log = LoggerFactory.getLogger(SiteCrawler.class);
+
+    /**
+     * @param pagesCrawled  pages fetched and ingested (changed or not)
+     * @param pagesFailed   pages that could not be fetched or ingested
+     * @param chunksWritten chunks embedded and stored across all pages
+     */
+    public record SiteCrawlResult(int pagesCrawled, int pagesFailed, int chunksWritten) {}
+
+    private final IngestionService ingestionService;
+    private final CrawlService crawlService;
+
+    // Next free request slot (epoch millis) per host, shared by concurrent crawls of the same host
+    private final Cache<String, AtomicLong> nextSlotByHost = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    @Value("${rag.crawl.site.max-depth:3}")
+    private int defaultMaxDepth;
+
+    @Value("${rag.crawl.site.max-pages:200}")
+    private int defaultMaxPages;
+
+    @Value("${rag.crawl.site.max-pages-limit:5000}")
+    private int maxPagesLimit;
+
+    @Value("${rag.crawl.site.concurrency:8}")
+    private int concurrency;
+
+    @Value("${rag.crawl.site.host-interval:PT0.5S}")
+    private Duration hostInterval;
+
+    /**
+     * Crawls the site behind {@code seedUrl} into the user's partition. Null limits fall back
+     * to the configured defaults. Blocks until the crawl is done; meant to run on an
+     * ingestion job worker.
+     */
+    public SiteCrawlResult crawl(String seedUrl, Long userId, Integer maxDepth, Integer maxPages, IntConsumer progressListener) {
+        URI seed = URI.create(seedUrl);
+        if (seed.getHost() == null || !("http".equalsIgnoreCase(seed.getScheme()) || "https".equalsIgnoreCase(seed.getScheme()))) {
+            throw new IllegalArgumentException("Seed must be an absolute http(s) URL: " + seedUrl);
+        }
+        int depthLimit = maxDepth != null ? maxDepth : defaultMaxDepth;
+        int pageLimit = Math.min(maxPages != null ? maxPages : defaultMaxPages, maxPagesLimit);
+        long start = System.currentTimeMillis();
+
+        Robots robots = fetchRobots(seed);
+        Duration interval = robots.crawlDelay() != null && robots.crawlDelay().compareTo(hostInterval) > 0
+                ? robots.crawlDelay() : hostInterval;
+
+        Set<String> seen = new HashSet<>(List.of(seedUrl));
+        AtomicInteger crawled = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger chunksWritten = new AtomicInteger();
+        List<String> frontier = List.of(seedUrl);
+
+        for (int depth = 0; depth <= depthLimit && !frontier.isEmpty(); depth++) {
+            boolean followLinks = depth < depthLimit;
+            List<String> next = new ArrayList<>();
+            Flux.fromIterable(frontier)
+                    .filter(url -> robots.allows(URI.create(url).getRawPath()))
+                    .flatMap(url -> fetchPolitely(url, interval)
+                            // Extraction and embedding block, keep them off the HTTP event loop
+                            .publishOn(Schedulers.boundedElastic())
+                            .map(page -> {
+                                if (page.redirected()) {
+                                    // Redirects aren't followed blindly: the target joins the frontier like a
+                                    // discovered link, so it goes through the origin, robots and page limit checks
+                                    return sameOrigin(seed, page.redirectTo()) ? List.of(stripFragment(page.redirectTo())) : List.<String>of();
+                                }
+                                List<String> links = followLinks ? sameOriginLinks(seed, url, page) : List.<String>of();
+                                chunksWritten.addAndGet(crawlService.ingestFetched(url, userId, page, written -> { }).chunksWritten());
+                                crawled.incrementAndGet();
+                                progressListener.accept(chunksWritten.get());
+                                return links;
+                            })
+                            .onErrorResume(e -> {
+                                log.warn("Skipping {}: {}", url, e.getMessage());
+                                failed.incrementAndGet();
+                                return Mono.empty();
+                            }), concurrency)
+                    // flatMap serialises emissions, so the frontier needs no locking
+                    .doOnNext(links -> {
+                        for (String link : links) {
+                            if (seen.size() >= pageLimit) {
+                                return;
+                            }
+                            if (seen.add(link)) {
+                                next.add(link);
+                            }
+                        }
+                    })
+                    .blockLast();
+            frontier = next;
+        }
+
+        log.info("Crawled site {} for user {} in {} ms: {} pages, {} failed, {} chunks written",
+                seedUrl, userId, System.currentTimeMillis() - start, crawled.get(), failed.get(), chunksWritten.get());
+        return new SiteCrawlResult(crawled.get(), failed.get(), chunksWritten.get());
+    }
+
+    private Mono<IngestionService.FetchedPage> fetchPolitely(String url, Duration interval) {
+        return Mono.defer(() -> Mono.delay(reserveSlot(URI.create(url).getHost(), interval)))
+                .then(Mono.defer(() -> ingestionService.fetchPageNoRedirect(url)));
+    }
+
+    /**
+     * Reserves the host's next request slot and returns how long to wait for it.
+     */
+    private Duration reserveSlot(String host, Duration interval) {
+        AtomicLong nextSlot = nextSlotByHost.get(host.toLowerCase(Locale.ROOT), h -> new AtomicLong());
+        long now = System.currentTimeMillis();
+        long slot = Math.max(nextSlot.getAndUpdate(next -> Math.max(next, now) + interval.toMillis()), now);
+        return Duration.ofMillis(slot - now);
+    }
+
+    private static List<String> sameOriginLinks(URI seed, String url, IngestionService.FetchedPage page) {
+        if (!HtmlTextExtractor.isHtml(page.contentType())) {
+            return List.of();
+        }
+        try {
+            return HtmlTextExtractor.links(HtmlTextExtractor.parse(page.body(), page.contentType(), url)).stream()
+                    .filter(link -> sameOrigin(seed, link))
+                    .toList();
+        } catch (IOException e) {
+            log.debug("Could not read links of {}: {}", url, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static boolean sameOrigin(URI seed, String link) {
+        try {
+            URI uri = URI.create(link);
+            return seed.getScheme().equalsIgnoreCase(uri.getScheme())
+                    && seed.getHost().equalsIgnoreCase(uri.getHost())
+                    && effectivePort(seed) == effectivePort(uri);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String stripFragment(String link) {
+        int fragment = link.indexOf('#');
+        return fragment >= 0 ? link.substring(0, fragment) : link;
+    }
+
+    private static int effectivePort(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private Robots fetchRobots(URI seed) {
+        String robotsUrl = seed.getScheme() + "://" + seed.getRawAuthority() + "/robots.txt";
+        try {
+            // robots.txt redirects are followed, as crawlers conventionally do
+            IngestionService.FetchedPage page = Mono.delay(reserveSlot(seed.getHost(), hostInterval))
+                    .then(Mono.defer(() -> ingestionService.fetchPageAsync(robotsUrl, null, null)))
+                    .block();
+            return page != null && page.body() != null
+                    ? Robots.parse(new String(page.body(), StandardCharsets.UTF_8))
+                    : Robots.ALLOW_ALL;
+        } catch (Exception e) {
+            // No robots.txt (or an unreachable one) places no restrictions
+            return Robots.ALLOW_ALL;
+        }
+    }
+
+    /**
+     * The rules of the robots.txt groups that apply to every user agent ({@code *}):
+     * Disallow path prefixes, Allow exceptions (longest match wins) and Crawl-delay.
+     */
+    record Robots(List<String> allow, List<String> disallow, Duration crawlDelay) {
+
+        static final Robots ALLOW_ALL = new Robots(List.of(), List.of(), null);
+
+        static Robots parse(String robotsTxt) {
+            List<String> allow = new ArrayList<>();
+            List<String> disallow = new ArrayList<>();
+            Duration crawlDelay = null;
+            boolean applies = false;
+            boolean inAgentLine = false;
+            for (String rawLine : robotsTxt.split("\\r?\\n")) {
+                String line = rawLine.replaceAll("#.*", "").strip();
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String field = line.substring(0, colon).strip().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).strip();
+                if (field.equals("user-agent")) {
+                    // Consecutive User-agent lines open one group
+                    applies = (inAgentLine && applies) || value.equals("*");
+                    inAgentLine = true;
+                    continue;
+                }
+                inAgentLine = false;
+                if (!applies) {
+                    continue;
+                }
+                switch (field) {
+                    case "disallow" -> {
+                        if (!value.isEmpty()) {
+                            disallow.add(value);
+                        }
+                    }
+                    case "allow" -> allow.add(value);
+                    case "crawl-delay" -> {
+                        try {
+                            crawlDelay = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+                        } catch (NumberFormatException e) {
+                            // Ignore a malformed delay
+                        }
+                    }
+                    default -> { }
+                }
+            }
+            return new Robots(allow, disallow, crawlDelay);
+        }
+
+        boolean allows(String path) {
+            String target = path == null || path.isEmpty() ? "/" : path;
+            int disallowed = longestPrefix(disallow, target);
+            return disallowed < 0 || longestPrefix(allow, target) >= disallowed;
+        }
+
+        private static int longestPrefix(List<String> prefixes, String path) {
+            int longest = -1;
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix) && prefix.length() > longest) {
+                    longest = prefix.length();
+                }
+            }
+            return longest;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.aibusiness.rag.service;
+
+import com.aibusiness.rag.dto.SourceDeleteResponse;
+import com.aibusiness.rag.dto.SourceResponse;
+import com.aibusiness.rag.event.ChunksRemovedEvent;
+import com.aibusiness.rag.event.SourceChangedEvent;
+import com.aibusiness.rag.exception.SourceNotFoundException;
+import com.aibusiness.rag.repository.CrawledUrlRepository;
+import com.aibusiness.rag.repository.ParentChunkRepository;
+import com.aibusiness.rag.repository.SourceRepository;
+import com.aibusiness.rag.repository.VectorChunkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Source-level management of the stored chunks: listing, deletion and expiry. Deleting a
+ * source removes its chunks, parent sections and crawl registration, so a crawled URL is
+ * not re-ingested by the refresher afterwards.
+ * <p>
+ * Expired sources are deleted by a background sweeper. With rag.sources.default-ttl set,
+ * every source expires that long after its content last changed.
+ */
+@Service
+public class SourceService {
+
+    private static final Logger log = LoggerFactory.getLogger(SourceService.class);
+
+    private final SourceRepository sourceRepository;
+    private final VectorChunkRepository chunkRepository;
+    private final ParentChunkRepository parentChunkRepository;
+    private final CrawledUrlRepository crawledUrlRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration defaultTtl;
+    private final int deleteBatchSize;
+    private final int sweepBatchSize;
+    private final int maxListLimit;
+
+    public SourceService(SourceRepository sourceRepository,
+                         VectorChunkRepository chunkRepository,
+                         ParentChunkRepository parentChunkRepository,
+                         CrawledUrlRepository crawledUrlRepository,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${rag.sources.default-ttl:}") Duration defaultTtl,
+                         @Value("${rag.sources.delete-batch-size:1000}") int deleteBatchSize,
+                         @Value("${rag.sources.sweep-batch-size:100}") int sweepBatchSize,
+                         @Value("${rag.sources.max-list-limit:1000}") int maxListLimit) {
+        this.sourceRepository = sourceRepository;
+        this.chunkRepository = chunkRepository;
+        this.parentChunkRepository = parentChunkRepository;
+        this.crawledUrlRepository = crawledUrlRepository;
+        this.eventPublisher = eventPublisher;
+        this.defaultTtl = defaultTtl;
+        this.deleteBatchSize = deleteBatchSize;
+        this.sweepBatchSize = sweepBatchSize;
+        this.maxListLimit = maxListLimit;
+    }
+
+    public List<SourceResponse> listSources(Long userId, String after, int limit) {
+        if (limit < 1 || limit > maxListLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxListLimit);
+        }
+        return sourceRepository.findSources(userId, after, limit);
+    }
+
+    public SourceDeleteResponse deleteSource(Long userId, String source) {
+        if (chunkRepository.countSourceChunks(userId, source) == 0) {
+            throw new SourceNotFoundException("Source not found: " + source);
+        }
+        return new SourceDeleteResponse(source, delete(userId, source));
+    }
+
+    /**
+     * Sets the source to expire {@code ttl} from now, or never when {@code ttl} is null.
+     */
+    public SourceResponse setExpiry(Long userId, String source, Duration ttl) {
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("ttl_seconds must be positive");
+        }
+        long chunks = chunkRepository.countSourceChunks(userId, source);
+        if (chunks == 0) {
+            throw new SourceNotFoundException("Source not found: " + source);
+        }
+        Instant expiresAt = ttl != null ? Instant.now().plus(ttl) : null;
+        if (expiresAt != null) {
+            sourceRepository.saveExpiry(userId, source, expiresAt);
+        } else {
+            sourceRepository.deleteExpiry(userId, source);
+        }
+        return new SourceResponse(source, chunks, expiresAt);
+    }
+
+    @EventListener
+    public void onSourceChanged(SourceChangedEvent event) {
+        if (defaultTtl == null) {
+            return;
+        }
+        try {
+            if (chunkRepository.countSourceChunks(event.userId(), event.source()) > 0) {
+                sourceRepository.extendExpiry(event.userId(), event.source(), Instant.now().plus(defaultTtl));
+            }
+        } catch (Exception e) {
+            // The source keeps its previous expiry, if any
+            log.warn("Failed to set the default expiry of {}: {}", event.source(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rag.sources.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        List<SourceRepository.SourceKey> expired = sourceRepository.findExpired(sweepBatchSize);
+        long chunks = 0;
+        for (SourceRepository.SourceKey key : expired) {
+            try {
+                chunks += delete(key.userId(), key.source());
+            } catch (Exception e) {
+                // Left in rag_source_ttl, so the next sweep retries it
+                log.warn("Failed to delete expired source {}: {}", key.source(), e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("Expired {} sources ({} chunks)", expired.size(), chunks);
+        }
+    }
+
+    private long delete(Long userId, String source) {
+        long deleted = 0;
+        List<String> removedIds;
+        do {
+            removedIds = chunkRepository.deleteSourceChunks(userId, source, deleteBatchSize);
+            deleted += removedIds.size();
+            if (!removedIds.isEmpty()) {
+                eventPublisher.publishEvent(new ChunksRemovedEvent(removedIds));
+            }
+        } while (removedIds.size() == deleteBatchSize);
+        parentChunkRepository.deleteBySource(userId, source);
+        crawledUrlRepository.deleteByUrlAndUser(source, userId);
+        sourceRepository.deleteExpiry(userId, source);
+        eventPublisher.publishEvent(new SourceChangedEvent(userId, source));
+        return deleted;
+    }
+}
@@ -0,0 +1,360 @@
+package com.aibusiness.rag.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.ai.document.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * SAX handler that chunks Tika's XHTML along the document structure instead of at fixed
+ * token offsets. Headings, paragraphs, list items and table rows are read as whole blocks
+ * and packed into chunks of up to {@code chunkTokens}; a block is only split when it is
+ * larger than a chunk on its own, and then at sentence boundaries. Every chunk starts with
+ * the heading path of its section, and a chunk that continues a table repeats the table's
+ * header row.
+ * <p>
+ * Sections (text between headings, merged forward while shorter than
+ * {@code minSectionTokens} and capped at {@code parentTokens}) become parent chunks: they
+ * are emitted with {@link #CHUNK_TYPE} = {@link #PARENT} ahead of their children, which
+ * reference them through {@link #PARENT_ID}. Only the children are embedded; retrieval can
+ * expand them to the parent section (see {@link ParentChunkExpander}). A section that fits
+ * in one chunk gets no parent.
+ */
+class StructureChunkingContentHandler extends DefaultHandler {
+
+    static final String PARENT_ID = "parent_id";
+    static final String CHUNK_TYPE = "chunk_type";
+    static final String PARENT = "parent";
+    static final String SECTION = "section";
+
+    // Loading the BPE ranks is expensive, share them between documents
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    private static final Pattern SENTENCE_BREAK = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Set<String> BLOCK_ELEMENTS = Set.of(
+            "p", "div", "pre", "blockquote", "dt", "dd", "caption", "ul", "ol", "dl", "table");
+    private static final int MAX_BLOCK_CHARS = 32768;
+
+    /**
+     * @param chunkTokens      target size of an embedded (child) chunk
+     * @param overlapTokens    trailing blocks of a chunk repeated at the start of the next one in the same section
+     * @param parentTokens     maximum size of a parent section
+     * @param minSectionTokens sections smaller than this are merged into the following one
+     */
+    record Settings(int chunkTokens, int overlapTokens, int parentTokens, int minSectionTokens) {}
+
+    private record Block(String text, int tokens, String breadcrumb, String tableHeader, boolean heading) {}
+
+    private final Settings settings;
+    private final Map<String, Object> sourceMetadata;
+    private final Consumer<List<Document>> chunkSink;
+
+    private final StringBuilder text = new StringBuilder();
+    private final String[] headings = new String[6];
+    private String breadcrumb = "";
+    private int headingLevel;
+    private int listDepth;
+    private final List<String> rowCells = new ArrayList<>();
+    private boolean inRow;
+    private String tableHeader;
+
+    private final List<Block> section = new ArrayList<>();
+    private int sectionTokens;
+
+    StructureChunkingContentHandler(Settings settings, Map<String, Object> sourceMetadata, Consumer<List<Document>> chunkSink) {
+        this.settings = settings;
+        this.sourceMetadata = sourceMetadata;
+        this.chunkSink = chunkSink;
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        text.append(ch, start, length);
+        if (text.length() >= MAX_BLOCK_CHARS && !inRow && headingLevel == 0) {
+            // Documents without paragraph markup (e.g. some PDFs) arrive as one huge block
+            int cut = Math.max(text.lastIndexOf(" "), text.lastIndexOf("\n"));
+            String head = text.substring(0, cut > 0 ? cut : text.length());
+            text.delete(0, head.length());
+            addBlock(clean(head), null, false);
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+        characters(ch, start, length);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        int level = headingLevel(localName);
+        if (inRow) {
+            if (localName.equals("td") || localName.equals("th")) {
+                text.setLength(0);
+            } else {
+                text.append(' ');
+            }
+        } else if (level > 0) {
+            flushText();
+            headingLevel = level;
+        } else if (localName.equals("tr")) {
+            flushText();
+            rowCells.clear();
+            inRow = true;
+        } else if (localName.equals("table")) {
+            flushText();
+            tableHeader = null;
+        } else if (localName.equals("li")) {
+            flushText();
+            listDepth++;
+        } else if (BLOCK_ELEMENTS.contains(localName)) {
+            flushText();
+        } else if (localName.equals("br")) {
+            text.append('\n');
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (inRow) {
+            if (localName.equals("td") || localName.equals("th")) {
+                String cell = clean(text.toString());
+                text.setLength(0);
+                if (!cell.isEmpty()) {
+                    rowCells.add(cell);
+                }
+            } else if (localName.equals("tr")) {
+                inRow = false;
+                endRow();
+            }
+        } else if (headingLevel > 0 && localName.equals("h" + headingLevel)) {
+            String heading = clean(text.toString());
+            text.setLength(0);
+            startSection(headingLevel, heading);
+            headingLevel = 0;
+        } else if (localName.equals("li")) {
+            flushText();
+            listDepth = Math.max(0, listDepth - 1);
+        } else if (localName.equals("table")) {
+            flushText();
+            tableHeader = null;
+        } else if (BLOCK_ELEMENTS.contains(localName)) {
+            flushText();
+        }
+    }
+
+    /**
+     * Emits the section still being collected. Call once parsing has finished.
+     */
+    void flush() {
+        flushText();
+        closeSection();
+    }
+
+    private void flushText() {
+        String block = clean(text.toString());
+        text.setLength(0);
+        if (!block.isEmpty()) {
+            addBlock(listDepth > 0 ? "- " + block : block, null, false);
+        }
+    }
+
+    private void endRow() {
+        if (rowCells.isEmpty()) {
+            return;
+        }
+        String row = String.join(" | ", rowCells);
+        if (tableHeader == null) {
+            // The first row is taken as the header, it is repeated when a table spans chunks
+            tableHeader = row;
+            addBlock(row, null, false);
+        } else {
+            addBlock(row, tableHeader, false);
+        }
+    }
+
+    private void startSection(int level, String heading) {
+        if (heading.isEmpty()) {
+            return;
+        }
+        headings[level - 1] = heading;
+        for (int i = level; i < headings.length; i++) {
+            headings[i] = null;
+        }
+        if (sectionTokens >= settings.minSectionTokens()) {
+            closeSection();
+        }
+        List<String> path = new ArrayList<>();
+        for (String h : headings) {
+            if (h != null) {
+                path.add(h);
+            }
+        }
+        breadcrumb = String.join(" > ", path);
+        addBlock(heading, null, true);
+    }
+
+    private void addBlock(String blockText, String header, boolean heading) {
+        int tokens = ENCODING.countTokens(blockText);
+        if (tokens > settings.chunkTokens()) {
+            for (String piece : split(blockText)) {
+                addBlock(piece, header, heading);
+            }
+            return;
+        }
+        if (!section.isEmpty() && sectionTokens + tokens > settings.parentTokens()) {
+            closeSection();
+        }
+        section.add(new Block(blockText, tokens, breadcrumb, header, heading));
+        sectionTokens += tokens;
+    }
+
+    private void closeSection() {
+        if (section.isEmpty()) {
+            return;
+        }
+        List<Document> children = pack(section);
+        List<Document> chunks = new ArrayList<>(children.size() + 1);
+        if (children.size() > 1) {
+            String parentText = String.join("\n", section.stream().map(Block::text).toList());
+            String parentId = UUID.nameUUIDFromBytes(
+                    (sourceMetadata.get("source") + "\n" + parentText).getBytes(StandardCharsets.UTF_8)).toString();
+            Map<String, Object> parentMetadata = metadata(section.get(0).breadcrumb());
+            parentMetadata.put(CHUNK_TYPE, PARENT);
+            chunks.add(new Document(parentId, parentText, parentMetadata));
+            for (Document child : children) {
+                child.getMetadata().put(PARENT_ID, parentId);
+            }
+        }
+        chunks.addAll(children);
+        chunkSink.accept(chunks);
+        section.clear();
+        sectionTokens = 0;
+    }
+
+    private List<Document> pack(List<Block> blocks) {
+        List<Document> children = new ArrayList<>();
+        List<Block> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (Block block : blocks) {
+            if (!current.isEmpty() && currentTokens + block.tokens() > settings.chunkTokens()) {
+                children.add(child(current));
+                current = overlap(current, block.tokens());
+                currentTokens = current.stream().mapToInt(Block::tokens).sum();
+            }
+            current.add(block);
+            currentTokens += block.tokens();
+        }
+        if (!current.isEmpty()) {
+            children.add(child(current));
+        }
+        return children;
+    }
+
+    /**
+     * The trailing blocks of a finished chunk that fit in the overlap and still leave room
+     * for the next block.
+     */
+    private List<Block> overlap(List<Block> chunk, int nextTokens) {
+        List<Block> tail = new ArrayList<>();
+        int tokens = 0;
+        for (int i = chunk.size() - 1; i > 0; i--) {
+            Block block = chunk.get(i);
+            if (block.heading() || tokens + block.tokens() > settings.overlapTokens()
+                    || tokens + block.tokens() + nextTokens > settings.chunkTokens()) {
+                break;
+            }
+            tail.add(0, block);
+            tokens += block.tokens();
+        }
+        return tail;
+    }
+
+    private Document child(List<Block> blocks) {
+        StringBuilder content = new StringBuilder();
+        Block first = blocks.get(0);
+        if (!first.heading() && !first.breadcrumb().isEmpty()) {
+            content.append(first.breadcrumb()).append('\n');
+        }
+        Block previous = null;
+        for (Block block : blocks) {
+            if (block.tableHeader() != null && (previous == null
+                    || !(Objects.equals(previous.tableHeader(), block.tableHeader()) || previous.text().equals(block.tableHeader())))) {
+                content.append(block.tableHeader()).append('\n');
+            }
+            content.append(block.text()).append('\n');
+            previous = block;
+        }
+        return new Document(content.toString().strip(), metadata(first.breadcrumb()));
+    }
+
+    private Map<String, Object> metadata(String sectionPath) {
+        Map<String, Object> metadata = new HashMap<>(sourceMetadata);
+        if (!sectionPath.isEmpty()) {
+            metadata.put(SECTION, sectionPath);
+        }
+        return metadata;
+    }
+
+    /**
+     * Splits an oversized block at sentence boundaries, and a sentence that is still too
+     * long at word boundaries.
+     */
+    private List<String> split(String blockText) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder piece = new StringBuilder();
+        int pieceTokens = 0;
+        for (String sentence : SENTENCE_BREAK.split(blockText)) {
+            int tokens = ENCODING.countTokens(sentence) + 1;
+            if (tokens > settings.chunkTokens()) {
+                for (String word : sentence.split("\\s+")) {
+                    int wordTokens = ENCODING.countTokens(word) + 1;
+                    if (pieceTokens + wordTokens > settings.chunkTokens() && !piece.isEmpty()) {
+                        pieces.add(piece.toString().strip());
+                        piece.setLength(0);
+                        pieceTokens = 0;
+                    }
+                    piece.append(word).append(' ');
+                    pieceTokens += wordTokens;
+                }
+                continue;
+            }
+            if (pieceTokens + tokens > settings.chunkTokens() && !piece.isEmpty()) {
+                pieces.add(piece.toString().strip());
+                piece.setLength(0);
+                pieceTokens = 0;
+            }
+            piece.append(sentence).append(' ');
+            pieceTokens += tokens;
+        }
+        if (!piece.isEmpty()) {
+            pieces.add(piece.toString().strip());
+        }
+        return pieces;
+    }
+
+    private static int headingLevel(String localName) {
+        if (localName.length() == 2 && localName.charAt(0) == 'h' && localName.charAt(1) >= '1' && localName.charAt(1) <= '6') {
+            return localName.charAt(1) - '0';
+        }
+        return 0;
+    }
+
+    private static String clean(String raw) {
+        return raw.replaceAll("[ \\t\\x0B\\f\\r\\u00a0]+", " ")
+                .replaceAll(" *\\n *", "\n")
+                .replaceAll("\\n{2,}", "\n")
+                .strip();
+    }
+}
@@ -0,0 +1,27 @@
+package com.aibusiness.rag.service;
+
+/**
+ * Storage for the vectors of an {@link HnswIndex}, addressed by dense node id.
+ * Implementations decide the in-memory representation (full precision or quantized).
+ */
+public interface VectorArena {
+
+    void set(int node, float[] vector);
+
+    /**
+     * Returns the stored vector, decoded to full precision if the arena is lossy.
+     */
+    float[] get(int node);
+
+    /**
+     * Prepares a scorer for one query so per-query work is done only once.
+     */
+    NodeScorer scorer(float[] query);
+
+    int bytesPerVector();
+
+    @FunctionalInterface
+    interface NodeScorer {
+        float score(int node);
+    }
+}
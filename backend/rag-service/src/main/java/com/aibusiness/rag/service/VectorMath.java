@@ -0,0 +1,57 @@
+package com.aibusiness.rag.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversions between Spring AI's boxed embedding lists and compact float arrays,
+ * plus the few vector operations the retrieval code needs.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    public static float[] toFloatArray(List<Double> values) {
+        float[] result = new float[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i).floatValue();
+        }
+        return result;
+    }
+
+    public static List<Double> toDoubleList(float[] values) {
+        List<Double> result = new ArrayList<>(values.length);
+        for (float value : values) {
+            result.add((double) value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a unit-length copy, so cosine similarity reduces to a dot product.
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] result = new float[vector.length];
+        if (norm == 0) {
+            return result;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = (float) (vector[i] / norm);
+        }
+        return result;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,61 @@
+package com.aibusiness.rag.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexMaintenanceRepositoryTest {
+
+    @Test
+    void retargetsBtreeIndexAtTheShadowTable() {
+        String definition = IndexMaintenanceRepository.shadowDefinition(
+                "CREATE INDEX vector_store_user_idx ON public.vector_store USING btree (((metadata ->> 'user_id'::text)))",
+                24, 128);
+
+        assertThat(definition).isEqualTo(
+                "CREATE INDEX vector_store_user_idx_rebuild ON vector_store_rebuild USING btree (((metadata ->> 'user_id'::text)))");
+    }
+
+    @Test
+    void keepsUniqueness() {
+        String definition = IndexMaintenanceRepository.shadowDefinition(
+                "CREATE UNIQUE INDEX vector_store_pkey ON public.vector_store USING btree (id)", 24, 128);
+
+        assertThat(definition).isEqualTo("CREATE UNIQUE INDEX vector_store_pkey_rebuild ON vector_store_rebuild USING btree (id)");
+    }
+
+    @Test
+    void replacesHnswBuildParametersAndKeepsThePredicate() {
+        String definition = IndexMaintenanceRepository.shadowDefinition(
+                "CREATE INDEX vector_store_shared_halfvec_idx ON public.vector_store USING hnsw " +
+                        "(((embedding)::halfvec(768)) halfvec_cosine_ops) WITH (m='16', ef_construction='64') " +
+                        "WHERE ((metadata ->> 'user_id'::text) IS NULL)",
+                24, 128);
+
+        assertThat(definition).isEqualTo(
+                "CREATE INDEX vector_store_shared_halfvec_idx_rebuild ON vector_store_rebuild USING hnsw " +
+                        "(((embedding)::halfvec(768)) halfvec_cosine_ops) WITH (m = 24, ef_construction = 128) " +
+                        "WHERE ((metadata ->> 'user_id'::text) IS NULL)");
+    }
+
+    @Test
+    void addsBuildParametersToHnswIndexWithoutThem() {
+        String definition = IndexMaintenanceRepository.shadowDefinition(
+                "CREATE INDEX vector_store_user_7_halfvec_idx ON public.vector_store USING hnsw " +
+                        "(((embedding)::halfvec(768)) halfvec_cosine_ops) WHERE ((metadata ->> 'user_id'::text) = '7'::text)",
+                16, 64);
+
+        assertThat(definition).isEqualTo(
+                "CREATE INDEX vector_store_user_7_halfvec_idx_rebuild ON vector_store_rebuild USING hnsw " +
+                        "(((embedding)::halfvec(768)) halfvec_cosine_ops) WITH (m = 16, ef_construction = 64) " +
+                        "WHERE ((metadata ->> 'user_id'::text) = '7'::text)");
+    }
+
+    @Test
+    void rejectsIndexesOfOtherTables() {
+        assertThatThrownBy(() -> IndexMaintenanceRepository.shadowDefinition(
+                "CREATE INDEX other_idx ON public.other_table USING btree (id)", 16, 64))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
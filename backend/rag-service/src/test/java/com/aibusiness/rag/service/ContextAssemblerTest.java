@@ -0,0 +1,75 @@
+package com.aibusiness.rag.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextAssemblerTest {
+
+    private final ContextAssembler assembler = new ContextAssembler(3000, 48);
+
+    @Test
+    void recognisesShortBoilerplateLines() {
+        assertThat(ContextAssembler.isBoilerplate("© 2024 Acme Inc.")).isTrue();
+        assertThat(ContextAssembler.isBoilerplate("All rights reserved.")).isTrue();
+        assertThat(ContextAssembler.isBoilerplate("Skip to main content")).isTrue();
+        assertThat(ContextAssembler.isBoilerplate("Page 3 of 12")).isTrue();
+    }
+
+    @Test
+    void keepsContentThatMentionsBoilerplatePhrases() {
+        assertThat(ContextAssembler.isBoilerplate(
+                "Our privacy policy explains how uploaded documents are encrypted at rest.")).isFalse();
+        assertThat(ContextAssembler.isBoilerplate("Refunds are issued within 30 days.")).isFalse();
+        assertThat(ContextAssembler.isBoilerplate("Copyright " + "x".repeat(130))).isFalse();
+    }
+
+    @Test
+    void keepsLineBreaksBlankLinesAndIndentation() {
+        String content = "Steps to deploy:\n- build the image\n- push it\n\nThen run:\n    kubectl apply -f app.yaml";
+
+        ContextAssembler.AssembledContext context = assembler.assemble(List.of(new Document(content)));
+
+        assertThat(context.text()).isEqualTo(content);
+    }
+
+    @Test
+    void dropsBoilerplateAndSentencesSeenInHigherRankedChunks() {
+        ContextAssembler.AssembledContext context = assembler.assemble(List.of(
+                new Document("Refunds take 30 days. Contact support to start one.\nAll rights reserved."),
+                new Document("Contact support to start one. Exchanges are free.\nSecond line.")));
+
+        assertThat(context.text()).isEqualTo(
+                "Refunds take 30 days. Contact support to start one.\n---\nExchanges are free.\nSecond line.");
+        assertThat(context.chunks()).hasSize(2);
+        assertThat(context.tokensSaved()).isPositive();
+    }
+
+    @Test
+    void skipsChunksLeftEmptyByDeduplication() {
+        ContextAssembler.AssembledContext context = assembler.assemble(List.of(
+                new Document("Refunds take 30 days."),
+                new Document("refunds  take 30 days.")));
+
+        assertThat(context.text()).isEqualTo("Refunds take 30 days.");
+        assertThat(context.chunks()).hasSize(1);
+    }
+
+    @Test
+    void cutsAChunkThatDoesNotFitAtASentenceBoundary() {
+        String content = IntStream.range(0, 100)
+                .mapToObj(i -> "Sentence number " + i + " describes the product.")
+                .collect(Collectors.joining(" "));
+
+        ContextAssembler.AssembledContext context = new ContextAssembler(60, 8).assemble(List.of(new Document(content)));
+
+        assertThat(context.text()).startsWith("Sentence number 0 describes the product.").endsWith(".");
+        assertThat(context.text().length()).isLessThan(content.length());
+        assertThat(content).startsWith(context.text());
+    }
+}
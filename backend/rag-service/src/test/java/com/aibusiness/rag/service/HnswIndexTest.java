@@ -0,0 +1,99 @@
+package com.aibusiness.rag.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int VECTORS = 2000;
+    private static final int QUERIES = 50;
+    private static final int K = 10;
+
+    private final Random random = new Random(7);
+
+    @Test
+    void fullPrecisionRecallMatchesExactScan() {
+        List<float[]> vectors = randomVectors(VECTORS);
+        HnswIndex index = new HnswIndex(new FloatVectorArena(DIMENSIONS), DIMENSIONS, 16, 200);
+        vectors.forEach(index::add);
+
+        assertThat(recall(index, vectors, 64)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void int8RecallStaysCloseToExactScan() {
+        List<float[]> vectors = randomVectors(VECTORS);
+        HnswIndex index = new HnswIndex(new Int8VectorArena(ScalarQuantizer.fit(vectors)), DIMENSIONS, 16, 200);
+        vectors.forEach(index::add);
+
+        assertThat(recall(index, vectors, 64)).isGreaterThanOrEqualTo(0.85);
+    }
+
+    @Test
+    void removedNodesAreNeverReturned() {
+        List<float[]> vectors = randomVectors(200);
+        HnswIndex index = new HnswIndex(new FloatVectorArena(DIMENSIONS), DIMENSIONS, 16, 200);
+        vectors.forEach(index::add);
+        for (int node = 0; node < 200; node += 2) {
+            index.remove(node);
+        }
+
+        for (int node = 0; node < 200; node += 2) {
+            assertThat(index.search(vectors.get(node), K, 64))
+                    .extracting(HnswIndex.Result::node)
+                    .allMatch(found -> found % 2 == 1);
+        }
+        assertThat(index.size()).isEqualTo(100);
+        assertThat(index.tombstoneRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void findsAnInsertedVectorAsItsOwnNearestNeighbour() {
+        List<float[]> vectors = randomVectors(500);
+        HnswIndex index = new HnswIndex(new FloatVectorArena(DIMENSIONS), DIMENSIONS, 16, 200);
+        vectors.forEach(index::add);
+
+        for (int node = 0; node < 500; node += 25) {
+            assertThat(index.search(vectors.get(node), 1, 64).get(0).node()).isEqualTo(node);
+        }
+    }
+
+    // Share of the exact top K found by the index, averaged over random queries
+    private double recall(HnswIndex index, List<float[]> vectors, int ef) {
+        int found = 0;
+        for (float[] query : randomVectors(QUERIES)) {
+            Set<Integer> exact = IntStream.range(0, vectors.size()).boxed()
+                    .sorted(Comparator.comparingDouble((Integer node) -> VectorMath.dot(query, vectors.get(node))).reversed())
+                    .limit(K)
+                    .collect(Collectors.toSet());
+            Set<Integer> approximate = new HashSet<>();
+            index.search(query, K, ef).forEach(result -> approximate.add(result.node()));
+            approximate.retainAll(exact);
+            found += approximate.size();
+        }
+        return (double) found / (QUERIES * K);
+    }
+
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            vectors.add(VectorMath.normalize(vector));
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,65 @@
+package com.aibusiness.rag.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LexicalRerankerTest {
+
+    private final LexicalReranker reranker = new LexicalReranker(0.5);
+
+    @Test
+    void blendsSimilarityWithQueryTermCoverage() {
+        List<Double> scores = reranker.score("How do refunds work?", List.of(
+                chunk("Refunds work within 30 days of purchase.", 0.2),
+                chunk("Shipping takes five business days.", 0.2)));
+
+        // Both query content words ("refunds", "work") are covered: 0.5 * 0.8 + 0.5 * 1
+        assertThat(scores.get(0)).isCloseTo(0.9, within(1e-9));
+        // None are covered: 0.5 * 0.8 + 0.5 * 0
+        assertThat(scores.get(1)).isCloseTo(0.4, within(1e-9));
+    }
+
+    @Test
+    void ignoresStopWordsAndCase() {
+        List<Double> scores = reranker.score("What is THE refund policy?", List.of(
+                chunk("refund policy", null)));
+
+        assertThat(scores).containsExactly(1.0);
+    }
+
+    @Test
+    void scoresFullTextOnlyChunksOnCoverageAlone() {
+        List<Double> scores = reranker.score("refund policy", List.of(chunk("Our refund rules", null)));
+
+        assertThat(scores.get(0)).isCloseTo(0.5, within(1e-9));
+    }
+
+    @Test
+    void clampsSimilarityOfDistantChunks() {
+        List<Double> scores = reranker.score("refund", List.of(chunk("unrelated text", 1.7)));
+
+        assertThat(scores).containsExactly(0.0);
+    }
+
+    @Test
+    void queryWithoutContentWordsOnlyUsesSimilarity() {
+        List<Double> scores = reranker.score("what is it?", List.of(chunk("anything", 0.0)));
+
+        assertThat(scores.get(0)).isCloseTo(0.5, within(1e-9));
+    }
+
+    private static Document chunk(String content, Double distance) {
+        Map<String, Object> metadata = new HashMap<>();
+        if (distance != null) {
+            metadata.put("distance", distance);
+        }
+        return new Document(content, metadata);
+    }
+}
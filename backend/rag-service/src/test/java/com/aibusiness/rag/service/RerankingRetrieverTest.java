@@ -0,0 +1,143 @@
+package com.aibusiness.rag.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RerankingRetrieverTest {
+
+    private static final int MAX_DEPTH = 32;
+
+    /**
+     * Scores chunk i with scores[i] and records the size of every call.
+     */
+    private static class RecordingReranker implements Reranker {
+        private final double[] scores;
+        private final boolean incremental;
+        private final List<Integer> calls = new ArrayList<>();
+        private final List<String> scoredIds = new ArrayList<>();
+
+        RecordingReranker(double[] scores, boolean incremental) {
+            this.scores = scores;
+            this.incremental = incremental;
+        }
+
+        @Override
+        public List<Double> score(String query, List<Document> candidates) {
+            calls.add(candidates.size());
+            candidates.forEach(candidate -> scoredIds.add(candidate.getId()));
+            return candidates.stream().map(candidate -> scores[index(candidate)]).toList();
+        }
+
+        @Override
+        public boolean incremental() {
+            return incremental;
+        }
+    }
+
+    @Test
+    void stopsAtInitialDepthWhenTheTailIsIrrelevant() {
+        RecordingReranker reranker = new RecordingReranker(scores(3, 0.9, 0.1), true);
+
+        List<Document> kept = retriever(reranker).retrieve(null, "query", new float[0], 4, null);
+
+        assertThat(reranker.calls).containsExactly(8);
+        assertThat(kept).extracting(Document::getId).containsExactly("chunk-0", "chunk-1", "chunk-2");
+    }
+
+    @Test
+    void doublesDepthWhileTheTailIsRelevantAndScoresEachChunkOnce() {
+        RecordingReranker reranker = new RecordingReranker(scores(12, 0.9, 0.1), true);
+
+        retriever(reranker).retrieve(null, "query", new float[0], 4, null);
+
+        // 8: chunks 6-7 are relevant, 16: chunks 12-15 are not
+        assertThat(reranker.calls).containsExactly(8, 8);
+        assertThat(reranker.scoredIds).doesNotHaveDuplicates().hasSize(16);
+    }
+
+    @Test
+    void neverScoresBeyondMaxDepth() {
+        RecordingReranker reranker = new RecordingReranker(scores(MAX_DEPTH, 0.9, 0.1), true);
+
+        retriever(reranker).retrieve(null, "query", new float[0], 4, null);
+
+        assertThat(reranker.calls).containsExactly(8, 8, 16);
+    }
+
+    @Test
+    void nonIncrementalScorerGradesTheFullDepthInOneCall() {
+        RecordingReranker reranker = new RecordingReranker(scores(3, 0.9, 0.1), false);
+
+        retriever(reranker).retrieve(null, "query", new float[0], 4, null);
+
+        assertThat(reranker.calls).containsExactly(MAX_DEPTH);
+    }
+
+    @Test
+    void keepsBestChunksAboveCutoffInScoreOrder() {
+        double[] scores = scores(0, 0, 0.1);
+        scores[5] = 0.8;
+        scores[2] = 0.6;
+        scores[7] = 0.3; // below min-score
+        RecordingReranker reranker = new RecordingReranker(scores, true);
+
+        List<Document> kept = retriever(reranker).retrieve(null, "query", new float[0], 4, null);
+
+        assertThat(kept).extracting(Document::getId).containsExactly("chunk-5", "chunk-2");
+        assertThat(kept.get(0).getMetadata()).containsEntry("relevance_score", 0.8);
+    }
+
+    @Test
+    void keepsMinChunksEvenBelowCutoff() {
+        RecordingReranker reranker = new RecordingReranker(scores(0, 0, 0.1), true);
+
+        List<Document> kept = retriever(reranker).retrieve(null, "query", new float[0], 4, null);
+
+        assertThat(kept).hasSize(1);
+    }
+
+    private static RerankingRetriever retriever(Reranker reranker) {
+        HybridRetriever hybridRetriever = mock(HybridRetriever.class);
+        List<Document> retrieved = IntStream.range(0, MAX_DEPTH)
+                .mapToObj(i -> new Document("chunk-" + i, "content " + i, new HashMap<>(Map.of())))
+                .toList();
+        when(hybridRetriever.retrieve(any(), anyString(), any(), anyInt(), any())).thenReturn(retrieved);
+
+        RerankingRetriever retriever = new RerankingRetriever(hybridRetriever, reranker, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(retriever, "enabled", true);
+        ReflectionTestUtils.setField(retriever, "initialDepth", 8);
+        ReflectionTestUtils.setField(retriever, "maxDepth", MAX_DEPTH);
+        ReflectionTestUtils.setField(retriever, "minScore", 0.35);
+        ReflectionTestUtils.setField(retriever, "tailFraction", 0.25);
+        ReflectionTestUtils.setField(retriever, "minChunks", 1);
+        return retriever;
+    }
+
+    // The first `relevant` chunks score `high`, the rest `low`
+    private static double[] scores(int relevant, double high, double low) {
+        double[] scores = new double[MAX_DEPTH];
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            scores[i] = i < relevant ? high : low;
+        }
+        return scores;
+    }
+
+    private static int index(Document chunk) {
+        return Integer.parseInt(chunk.getId().substring("chunk-".length()));
+    }
+}
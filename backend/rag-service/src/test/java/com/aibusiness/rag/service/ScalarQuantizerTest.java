@@ -0,0 +1,62 @@
+package com.aibusiness.rag.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ScalarQuantizerTest {
+
+    private final ScalarQuantizer quantizer = ScalarQuantizer.fit(List.of(
+            new float[]{-1f, 0f, 0.5f},
+            new float[]{1f, 0.25f, 0.5f},
+            new float[]{0f, 0.1f, 0.5f}));
+
+    @Test
+    void roundTripErrorIsAtMostHalfAStep() {
+        float[] vector = {0.3f, 0.2f, 0.5f};
+
+        float[] decoded = quantizer.decode(quantizer.encode(vector));
+
+        for (int i = 0; i < vector.length; i++) {
+            assertThat(decoded[i]).isCloseTo(vector[i], within(quantizer.scale(i) / 2 + 1e-6f));
+        }
+    }
+
+    @Test
+    void fittedRangeEndsMapToTheExtremeCodes() {
+        byte[] low = quantizer.encode(new float[]{-1f, 0f, 0.5f});
+        byte[] high = quantizer.encode(new float[]{1f, 0.25f, 0.5f});
+
+        assertThat(low[0]).isEqualTo((byte) -128);
+        assertThat(low[1]).isEqualTo((byte) -128);
+        assertThat(high[0]).isEqualTo((byte) 127);
+        assertThat(high[1]).isEqualTo((byte) 127);
+    }
+
+    @Test
+    void clampsValuesOutsideTheFittedRange() {
+        byte[] code = quantizer.encode(new float[]{5f, -5f, 0.5f});
+
+        assertThat(code[0]).isEqualTo((byte) 127);
+        assertThat(code[1]).isEqualTo((byte) -128);
+    }
+
+    @Test
+    void constantDimensionStillRoundTrips() {
+        float[] decoded = quantizer.decode(quantizer.encode(new float[]{0f, 0f, 0.5f}));
+
+        assertThat(decoded[2]).isCloseTo(0.5f, within(1e-6f));
+    }
+
+    @Test
+    void parametersSurviveAReload() {
+        ScalarQuantizer reloaded = new ScalarQuantizer(quantizer.offsets(), quantizer.scales());
+        float[] vector = {0.42f, 0.13f, 0.5f};
+
+        assertThat(reloaded.dimensions()).isEqualTo(3);
+        assertThat(reloaded.encode(vector)).isEqualTo(quantizer.encode(vector));
+    }
+}
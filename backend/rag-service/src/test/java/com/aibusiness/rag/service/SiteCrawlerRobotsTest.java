@@ -0,0 +1,86 @@
+package com.aibusiness.rag.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SiteCrawlerRobotsTest {
+
+    @Test
+    void appliesOnlyTheGroupsForEveryAgent() {
+        SiteCrawler.Robots robots = SiteCrawler.Robots.parse("""
+                User-agent: Googlebot
+                Disallow: /
+
+                User-agent: *
+                Disallow: /private/
+                """);
+
+        assertThat(robots.allows("/private/report.html")).isFalse();
+        assertThat(robots.allows("/public/index.html")).isTrue();
+    }
+
+    @Test
+    void consecutiveUserAgentLinesShareOneGroup() {
+        SiteCrawler.Robots robots = SiteCrawler.Robots.parse("""
+                User-agent: Bingbot
+                User-agent: *
+                Disallow: /tmp
+                User-agent: Googlebot
+                Disallow: /docs
+                """);
+
+        assertThat(robots.allows("/tmp/file")).isFalse();
+        assertThat(robots.allows("/docs/guide")).isTrue();
+    }
+
+    @Test
+    void longestMatchingAllowOverridesDisallow() {
+        SiteCrawler.Robots robots = SiteCrawler.Robots.parse("""
+                User-agent: *
+                Disallow: /docs/
+                Allow: /docs/public/
+                """);
+
+        assertThat(robots.allows("/docs/internal.html")).isFalse();
+        assertThat(robots.allows("/docs/public/guide.html")).isTrue();
+    }
+
+    @Test
+    void emptyDisallowAllowsEverything() {
+        SiteCrawler.Robots robots = SiteCrawler.Robots.parse("""
+                User-agent: *
+                Disallow:
+                """);
+
+        assertThat(robots.allows("/anything")).isTrue();
+    }
+
+    @Test
+    void ignoresCommentsAndReadsCrawlDelay() {
+        SiteCrawler.Robots robots = SiteCrawler.Robots.parse("""
+                # Be gentle
+                User-agent: * # everyone
+                Crawl-delay: 1.5
+                Disallow: /search # no result pages
+                Crawl-delay: soon
+                """);
+
+        assertThat(robots.crawlDelay()).isEqualTo(Duration.ofMillis(1500));
+        assertThat(robots.allows("/search?q=x")).isFalse();
+    }
+
+    @Test
+    void emptyPathMeansTheRoot() {
+        SiteCrawler.Robots robots = SiteCrawler.Robots.parse("""
+                User-agent: *
+                Disallow: /
+                """);
+
+        assertThat(robots.allows("")).isFalse();
+        assertThat(robots.allows(null)).isFalse();
+        assertThat(SiteCrawler.Robots.ALLOW_ALL.allows("/")).isTrue();
+    }
+}